@@ -0,0 +1,131 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+// Plays many seeded headless games in parallel on a ForkJoin pool and aggregates
+// score, lines, level and pieces per second into histograms. Game i always uses
+// seed baseSeed + i, so a batch is reproducible no matter how it is scheduled.
+//
+// Usage: java BatchSimulator [games] [threads] [seed] [maxSeconds] [random|heuristic|beam|mcts]
+public class BatchSimulator {
+    private static final int GAMES_PER_TASK = 16; // Leaf size for splitting the batch
+
+    private final LongFunction<Controller> controllers; // Builds a controller for a game seed
+    private final int maxTicks;                         // Games are cut off after this many ticks
+
+    public BatchSimulator(LongFunction<Controller> controllers, int maxSeconds) {
+        this.controllers = controllers;
+        this.maxTicks = maxSeconds * TetrisSimulation.TICKS_PER_SECOND;
+    }
+
+    // Aggregated results of a batch; each worker fills its own and they are merged
+    public static class Stats {
+        public final Histogram score = Histogram.powersOfTwo("score");
+        public final Histogram lines = Histogram.powersOfTwo("lines");
+        public final Histogram level = new Histogram("level", 1, 16);
+        public final Histogram piecesPerSecond = new Histogram("pieces/s (game time)", 0.25, 40);
+        public long games;
+        public long ticks;
+        public long pieces;
+
+        void add(TetrisSimulation simulation) {
+            ScoreManager scoreManager = simulation.getScoreManager();
+            double seconds = (double) simulation.getTick() / TetrisSimulation.TICKS_PER_SECOND;
+            score.add(scoreManager.getScore());
+            lines.add(scoreManager.getLinesCleared());
+            level.add(scoreManager.getLevel());
+            piecesPerSecond.add((seconds > 0) ? simulation.getPiecesPlaced() / seconds : 0);
+            games++;
+            ticks += simulation.getTick();
+            pieces += simulation.getPiecesPlaced();
+        }
+
+        void merge(Stats other) {
+            score.merge(other.score);
+            lines.merge(other.lines);
+            level.merge(other.level);
+            piecesPerSecond.merge(other.piecesPerSecond);
+            games += other.games;
+            ticks += other.ticks;
+            pieces += other.pieces;
+        }
+    }
+
+    // Plays games [first, first + count) with seeds baseSeed + i
+    public Stats run(ForkJoinPool pool, long baseSeed, int first, int count) {
+        return pool.invoke(task(baseSeed, first, count));
+    }
+
+    // The same batch as an unstarted task, so several batches can share one pool
+    public ForkJoinTask<Stats> task(long baseSeed, int first, int count) {
+        return new BatchTask(baseSeed, first, first + count);
+    }
+
+    // Plays a single game to the end (or the tick limit) on the given simulation
+    public void playGame(TetrisSimulation simulation, long seed) {
+        simulation.restart(seed);
+        Controller controller = controllers.apply(seed);
+        while (!simulation.isGameOver() && simulation.getTick() < maxTicks) {
+            simulation.step(controller.nextInputs(simulation));
+        }
+    }
+
+    private class BatchTask extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+        private final long baseSeed;
+        private final int from, to;
+
+        BatchTask(long baseSeed, int from, int to) {
+            this.baseSeed = baseSeed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                Stats stats = new Stats();
+                TetrisSimulation simulation = new TetrisSimulation(baseSeed + from);
+                for (int i = from; i < to; i++) {
+                    playGame(simulation, baseSeed + i);
+                    stats.add(simulation);
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            BatchTask left = new BatchTask(baseSeed, from, mid);
+            left.fork();
+            Stats stats = new BatchTask(baseSeed, mid, to).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+        int maxSeconds = (args.length > 3) ? Integer.parseInt(args[3]) : 600;
+        String player = (args.length > 4) ? args[4] : "random";
+
+        // Games already run in parallel, so each bot searches on its game's thread
+        BatchSimulator simulator = new BatchSimulator(player.equals("random")
+                ? s -> new RandomController(~s) : s -> Bot.create(player, null, s), maxSeconds);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            Stats stats = simulator.run(pool, seed, 0, games);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            stats.score.print(System.out);
+            stats.lines.print(System.out);
+            stats.level.print(System.out);
+            stats.piecesPerSecond.print(System.out);
+            System.out.printf("%d games on %d threads in %.2fs: %.1f games/s, %.0f ticks/s, %.0f pieces/s%n",
+                    stats.games, threads, seconds, stats.games / seconds, stats.ticks / seconds, stats.pieces / seconds);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
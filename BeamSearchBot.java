@@ -0,0 +1,242 @@
+import java.util.Arrays;
+
+// Plans over every known piece (current, preview and hold) with a beam search: each
+// ply expands all placements of the beam's positions, scores them with a
+// BoardEvaluator and keeps the best beamWidth for the next ply. Positions are keyed
+// by their Zobrist hash plus hold slot and queue position, and a TranspositionTable
+// maps those keys to scores, so a position reached through different placement
+// orders is expanded once and scored once. Keys use the absolute queue position, so
+// positions searched for one piece are found again when planning the next.
+//
+// Usage: java BeamSearchBot [beamWidth] [seconds] [seed] [tableEntries]
+//   plays one headless game and prints search statistics
+public class BeamSearchBot extends Bot {
+    private final BoardEvaluator evaluator;
+    private final double lineWeight;
+    private final int beamWidth;
+    private final TranspositionTable table;
+    private final MoveGenerator moves = new MoveGenerator(new Board());
+    private final Board scratch = new Board();
+
+    // Beam of the current ply and the one being built, swapped after each ply
+    private Layer beam, nextBeam;
+
+    // Children of the current ply before selection
+    private int childCount;
+    private int[] childParent = new int[1024];
+    private int[] childPlacement = new int[1024];
+    private int[] childInfo = new int[1024];      // next queue index, held type + 1, hold flag
+    private int[] childLines = new int[1024];
+    private double[] childScore = new double[1024];
+    private long[] order = new long[1024];        // Sortable score with child index, for selection
+
+    // Statistics since construction
+    private long searches, nodes, duplicates, searchNanos;
+
+    public BeamSearchBot(BoardEvaluator evaluator, int beamWidth, int tableEntries) {
+        this.evaluator = evaluator;
+        this.lineWeight = evaluator.getWeights()[BoardEvaluator.LINES];
+        this.beamWidth = beamWidth;
+        this.table = new TranspositionTable(tableEntries);
+        beam = new Layer(beamWidth);
+        nextBeam = new Layer(beamWidth);
+    }
+
+    // Positions kept after one ply of the search
+    private static final class Layer {
+        final Board[] boards;
+        final int[] next, held, lines;
+        final long[] root; // First move that led here: placement, plus bit 32 for hold
+        final double[] score;
+        int size;
+
+        Layer(int width) {
+            boards = new Board[width];
+            for (int i = 0; i < width; i++) boards[i] = new Board();
+            next = new int[width];
+            held = new int[width];
+            lines = new int[width];
+            root = new long[width];
+            score = new double[width];
+        }
+    }
+
+    @Override
+    protected Plan choose(TetrisSimulation simulation) {
+        long start = System.nanoTime();
+        searches++;
+        table.nextStamp();
+
+        PieceGenerator generator = simulation.getPieceGenerator();
+        int[] queue = new int[generator.getPreviewSize() + 1];
+        queue[0] = simulation.getCurrentPiece().getPieceType();
+        for (int i = 1; i < queue.length; i++) queue[i] = generator.peek(i - 1);
+        Integer heldType = simulation.getHeldPieceType();
+        int held = (heldType != null) ? heldType : -1;
+        // Absolute position of queue[0] in the game's piece sequence
+        int base = simulation.getPiecesPlaced() + ((held >= 0) ? 1 : 0);
+
+        beam.size = 1;
+        beam.boards[0].copyFrom(simulation.getBoard());
+        beam.next[0] = 0;
+        beam.held[0] = held;
+        beam.lines[0] = 0;
+
+        Plan plan = null;
+        for (int ply = 0; ; ply++) {
+            childCount = 0;
+            for (int n = 0; n < beam.size; n++) {
+                boolean canHold = ply > 0 || simulation.canHold();
+                int first = (ply == 0) ? simulation.getCurrentPiece().getState() : -1;
+                expand(n, queue, base, canHold, first);
+            }
+            if (childCount == 0) break;
+
+            select(ply);
+            plan = new Plan((beam.root[0] >>> 32) != 0, (int) beam.root[0]);
+            if (ply + 1 >= queue.length) break;
+        }
+        searchNanos += System.nanoTime() - start;
+        return plan;
+    }
+
+    // Adds the placements reachable from beam position n, with and without hold
+    private void expand(int n, int[] queue, int base, boolean canHold, int first) {
+        int next = beam.next[n];
+        if (next >= queue.length) return;
+        int held = beam.held[n];
+        int current = queue[next];
+        Board board = beam.boards[n];
+        addChildren(n, false, (first >= 0) ? first : PieceState.spawn(board, current), next + 1, held, base);
+        if (!canHold) return;
+        if (held < 0) {
+            if (next + 1 < queue.length) {
+                addChildren(n, true, PieceState.spawn(board, queue[next + 1]), next + 2, current, base);
+            }
+        } else if (held != current) {
+            addChildren(n, true, PieceState.spawn(board, held), next + 1, current, base);
+        }
+    }
+
+    private void addChildren(int parent, boolean hold, int start, int next, int held, int base) {
+        Board board = beam.boards[parent];
+        int found = moves.generate(board, start);
+        for (int i = 0; i < found; i++) {
+            int placement = moves.getPlacement(i);
+            scratch.copyFrom(board);
+            int lines = beam.lines[parent] + PieceState.lock(scratch, placement);
+            nodes++;
+
+            long key = scratch.getHash() ^ Zobrist.hold(held) ^ Zobrist.queue(base + next);
+            double value;
+            int slot = table.probe(key);
+            if (slot >= 0) {
+                if (table.stampOf(slot) == table.getStamp()) {
+                    duplicates++; // Already expanded by another placement order
+                    continue;
+                }
+                value = table.value(slot);
+                table.touch(slot);
+            } else {
+                value = evaluator.evaluate(scratch, 0);
+                table.store(key, value);
+            }
+
+            if (childCount == childScore.length) grow();
+            int c = childCount++;
+            childParent[c] = parent;
+            childPlacement[c] = placement;
+            childInfo[c] = next | ((held + 1) << 8) | (hold ? 1 << 16 : 0);
+            childLines[c] = lines;
+            childScore[c] = value + lineWeight * lines;
+        }
+    }
+
+    // Keeps the best beamWidth children as the next beam
+    private void select(int ply) {
+        for (int c = 0; c < childCount; c++) {
+            long bits = Double.doubleToLongBits(childScore[c]);
+            bits ^= (bits >> 63) & Long.MAX_VALUE; // Order negative scores correctly
+            order[c] = (bits & ~0xFFFFFL) | (0xFFFFF - c);
+        }
+        Arrays.sort(order, 0, childCount);
+
+        int width = Math.min(beamWidth, childCount);
+        for (int i = 0; i < width; i++) {
+            int c = 0xFFFFF - (int) (order[childCount - 1 - i] & 0xFFFFF);
+            int parent = childParent[c];
+            nextBeam.boards[i].copyFrom(beam.boards[parent]);
+            PieceState.lock(nextBeam.boards[i], childPlacement[c]);
+            nextBeam.next[i] = childInfo[c] & 0xFF;
+            nextBeam.held[i] = ((childInfo[c] >>> 8) & 0xFF) - 1;
+            nextBeam.lines[i] = childLines[c];
+            nextBeam.score[i] = childScore[c];
+            nextBeam.root[i] = (ply == 0)
+                    ? (childPlacement[c] & 0xFFFFFFFFL) | ((long) (childInfo[c] >>> 16) << 32)
+                    : beam.root[parent];
+        }
+        nextBeam.size = width;
+
+        Layer swap = beam;
+        beam = nextBeam;
+        nextBeam = swap;
+    }
+
+    private void grow() {
+        int size = childScore.length * 2;
+        childParent = Arrays.copyOf(childParent, size);
+        childPlacement = Arrays.copyOf(childPlacement, size);
+        childInfo = Arrays.copyOf(childInfo, size);
+        childLines = Arrays.copyOf(childLines, size);
+        childScore = Arrays.copyOf(childScore, size);
+        order = Arrays.copyOf(order, size);
+    }
+
+    public TranspositionTable getTable() { return table; }
+    public long getSearches() { return searches; }
+    public long getNodes() { return nodes; }
+    public long getDuplicates() { return duplicates; }
+
+    public double getNodesPerSecond() {
+        return (searchNanos == 0) ? 0 : nodes / (searchNanos / 1e9);
+    }
+
+    // Approximate bytes held by the table, the two beams and the child lists
+    public long memoryBytes() {
+        long board = scratch.TOTAL_HEIGHT * (3L * Integer.BYTES + scratch.WIDTH * Integer.BYTES);
+        long beams = 2L * beamWidth * (board + 4 * Integer.BYTES + 2 * Long.BYTES);
+        long children = (long) childScore.length * (4 * Integer.BYTES + 2 * Long.BYTES);
+        return table.memoryBytes() + beams + children;
+    }
+
+    public String getStats() {
+        return String.format("%d searches, %d nodes (%.0f nodes/s), %.1f%% duplicates, "
+                + "table hit rate %.1f%%, %d evictions, %.1f MB",
+                searches, nodes, getNodesPerSecond(), 100.0 * duplicates / Math.max(1, nodes),
+                100 * table.getHitRate(), table.getEvictions(), memoryBytes() / 1048576.0);
+    }
+
+    public static void main(String[] args) {
+        int beamWidth = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 300;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+        int entries = (args.length > 3) ? Integer.parseInt(args[3]) : 1 << 18;
+
+        TetrisSimulation simulation = new TetrisSimulation(seed);
+        BeamSearchBot bot = new BeamSearchBot(new BoardEvaluator(), beamWidth, entries);
+        long start = System.nanoTime();
+        while (!simulation.isGameOver() && simulation.getTick() < (long) seconds * TetrisSimulation.TICKS_PER_SECOND) {
+            simulation.step(bot.nextInputs(simulation));
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        ScoreManager scoreManager = simulation.getScoreManager();
+        System.out.printf("beam %d: %s after %d pieces, %d lines, score %d, level %d%n",
+                beamWidth, simulation.isGameOver() ? "topped out" : "still alive",
+                simulation.getPiecesPlaced(), scoreManager.getLinesCleared(),
+                scoreManager.getScore(), scoreManager.getLevel());
+        System.out.printf("%.2fs wall time, %.0f pieces/s, %.2f ms per search%n", elapsed,
+                simulation.getPiecesPlaced() / elapsed, bot.searchNanos / 1e6 / Math.max(1, bot.searches));
+        System.out.println(bot.getStats());
+    }
+}
@@ -1,21 +1,68 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
 public class Board {
     public final int WIDTH = 10;
     public final int VISIBLE_HEIGHT = 20; // Standard visible playfield height
     public final int BUFFER_HEIGHT = 20; // Buffer zone above visible area
     public final int TOTAL_HEIGHT = VISIBLE_HEIGHT + BUFFER_HEIGHT;
-    private int[][] grid;
+
+    // Column x lives in bit (x + WALL_BITS) of a row mask. Every bit outside the
+    // playfield is set, so the walls come for free in collision tests.
+    private final int WALL_BITS = 3;
+    private final int FIELD_MASK = ((1 << WIDTH) - 1) << WALL_BITS;
+    private final int EMPTY_ROW = ~FIELD_MASK;
+
+    private int[] rows;        // Occupancy, one mask per row
+    private int[] rowFill;     // Number of filled cells in each row
+    private int[][] colorRows; // Colour plane, [y][x], only used for rendering
+    private int[][] recycled;  // Scratch list of cleared colour rows waiting to be reused
+    private int topRow;        // Highest row holding a block, TOTAL_HEIGHT when empty
+    private int[] columnTop;   // Highest filled row of each column, TOTAL_HEIGHT when empty
+    private long hash;         // Zobrist hash of the occupied cells, kept up to date incrementally
+
+    private long version;      // Bumped on every change, so the renderer can tell when to copy the board
 
     public Board() {
-        grid = new int[WIDTH][TOTAL_HEIGHT];
+        rows = new int[TOTAL_HEIGHT];
+        rowFill = new int[TOTAL_HEIGHT];
+        colorRows = new int[TOTAL_HEIGHT][WIDTH];
+        recycled = new int[TOTAL_HEIGHT][];
+        columnTop = new int[WIDTH];
         clearBoard();
     }
 
     public void clearBoard() {
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < TOTAL_HEIGHT; y++) {
-                grid[x][y] = 0;
-            }
+        for (int y = 0; y < TOTAL_HEIGHT; y++) {
+            rows[y] = EMPTY_ROW;
+            rowFill[y] = 0;
+            Arrays.fill(colorRows[y], 0);
+        }
+        topRow = TOTAL_HEIGHT;
+        Arrays.fill(columnTop, TOTAL_HEIGHT);
+        hash = 0;
+        version++;
+    }
+
+    // Copy of another board, for search code that plays placements out on scratch boards
+    public Board(Board other) {
+        this();
+        copyFrom(other);
+    }
+
+    // Makes this board identical to other without allocating
+    public void copyFrom(Board other) {
+        System.arraycopy(other.rows, 0, rows, 0, TOTAL_HEIGHT);
+        System.arraycopy(other.rowFill, 0, rowFill, 0, TOTAL_HEIGHT);
+        for (int y = 0; y < TOTAL_HEIGHT; y++) {
+            System.arraycopy(other.colorRows[y], 0, colorRows[y], 0, WIDTH);
         }
+        System.arraycopy(other.columnTop, 0, columnTop, 0, WIDTH);
+        topRow = other.topRow;
+        hash = other.hash;
+        version++;
     }
 
     // Method to check if a position is within bounds
@@ -26,56 +73,192 @@ public class Board {
     // Method to check if a cell is occupied
     public boolean isOccupied(int x, int y) {
         if (!isWithinBounds(x, y)) return true; // Treat out of bounds as occupied for collision
-        return grid[x][y] != 0;
+        return (rows[y] & cellBit(x)) != 0;
+    }
+
+    // Checks whether a shape placed at (pieceX, pieceY) overlaps the walls, the floor or any placed block.
+    // Columns a few cells past either wall hit the sentinel bits, so no x bounds check is needed.
+    public boolean collides(int[][] shape, int pieceX, int pieceY) {
+        for (int[] block : shape) {
+            int y = pieceY + block[1];
+            if (y < 0 || y >= TOTAL_HEIGHT) return true;
+            if ((rows[y] & cellBit(pieceX + block[0])) != 0) return true;
+        }
+        return false;
+    }
+
+    private int cellBit(int x) {
+        return 1 << (x + WALL_BITS);
     }
 
     // Method to place a piece on the board (when it locks)
     public void placePiece(int x, int y, int color) {
         if (isWithinBounds(x, y)) {
-            grid[x][y] = color;
+            if ((rows[y] & cellBit(x)) == 0) {
+                rowFill[y]++;
+                hash ^= Zobrist.cell(x, y);
+            }
+            rows[y] |= cellBit(x);
+            colorRows[y][x] = color;
+            version++;
+            if (y < topRow) topRow = y;
+            if (y < columnTop[x]) columnTop[x] = y;
         }
     }
 
     public int checkAndClearCompletedRows(ScoreManager scoreManager, int currentLevel) {
+        return checkAndClearCompletedRows(scoreManager, currentLevel, topRow, TOTAL_HEIGHT - 1);
+    }
+
+    // Clears completed rows, only looking at rows fromRow..toRow. A locked piece can
+    // only complete the rows it covers, so passing its span keeps this constant-time.
+    public int checkAndClearCompletedRows(ScoreManager scoreManager, int currentLevel, int fromRow, int toRow) {
+        int linesCleared = clearCompletedRows(fromRow, toRow);
+        if (linesCleared > 0) {
+            scoreManager.addScoreForLines(linesCleared, currentLevel);
+        }
+        return linesCleared;
+    }
+
+    // Same as above without scoring, for simulations that keep their own tally
+    public int clearCompletedRows(int fromRow, int toRow) {
+        fromRow = Math.max(fromRow, topRow);
+        toRow = Math.min(toRow, TOTAL_HEIGHT - 1);
+
+        // Find the lowest full row; nothing below it has to move
+        int bottom = -1;
+        for (int y = toRow; y >= fromRow; y--) {
+            if (rowFill[y] == WIDTH) {
+                bottom = y;
+                break;
+            }
+        }
+        if (bottom < 0) return 0;
+
+        // Compact the surviving rows downwards by relinking them. Only the rows
+        // between the stack top and the lowest clear are touched, and no cells
+        // are copied; the cleared colour rows are kept for reuse.
         int linesCleared = 0;
-        // Start checking from the bottom of the TOTAL board (including buffer)
-        int y = TOTAL_HEIGHT - 1;
-
-        while (y >= 0) {
-            boolean full = true;
-            for (int x = 0; x < WIDTH; x++) {
-                if (grid[x][y] == 0) {
-                    full = false;
-                    break;
+        int write = bottom;
+        for (int read = bottom; read >= topRow; read--) {
+            if (read >= fromRow && rowFill[read] == WIDTH) {
+                hash ^= Zobrist.row(read, getRowBits(read));
+                recycled[linesCleared++] = colorRows[read];
+            } else {
+                if (write != read) {
+                    int bits = getRowBits(read);
+                    hash ^= Zobrist.row(read, bits) ^ Zobrist.row(write, bits);
                 }
+                rows[write] = rows[read];
+                rowFill[write] = rowFill[read];
+                colorRows[write] = colorRows[read];
+                write--;
             }
+        }
 
-            if (full) {
-                linesCleared++;
-                // Move everything down, including buffer zone
-                for (int row = y; row > 0; row--) {
-                    for (int x = 0; x < WIDTH; x++) {
-                        grid[x][row] = grid[x][row - 1];
-                    }
-                }
-                // Clear top row
-                for (int x = 0; x < WIDTH; x++) {
-                    grid[x][0] = 0;
+        // Wipe the cleared rows and reinsert them at the top of the stack
+        for (int i = 0; i < linesCleared; i++) {
+            int y = topRow + i;
+            int[] row = recycled[i];
+            Arrays.fill(row, 0);
+            rows[y] = EMPTY_ROW;
+            rowFill[y] = 0;
+            colorRows[y] = row;
+            recycled[i] = null;
+        }
+
+        topRow += linesCleared;
+        version++;
+
+        // Rows only ever move down, so each column's new top is at or below its old one
+        for (int x = 0; x < WIDTH; x++) {
+            int y = Math.max(columnTop[x], topRow);
+            while (y < TOTAL_HEIGHT && (rows[y] & cellBit(x)) == 0) {
+                y++;
+            }
+            columnTop[x] = y;
+        }
+
+        return linesCleared;
+    }
+
+    // Returns how far a shape at (pieceX, pieceY) can fall before it lands. When every
+    // block is above the surface of its column the answer comes straight from the
+    // column tops; a piece tucked under an overhang falls back to stepping down.
+    public int dropDistance(int[][] shape, int pieceX, int pieceY) {
+        int distance = TOTAL_HEIGHT;
+        for (int[] block : shape) {
+            int y = pieceY + block[1];
+            int top = columnTop[pieceX + block[0]];
+            if (y >= top) {
+                distance = 0;
+                while (!collides(shape, pieceX, pieceY + distance + 1)) {
+                    distance++;
                 }
-                // Don't decrement y, check same position again
-            } else {
-                y--;
+                return distance;
             }
+            distance = Math.min(distance, top - 1 - y);
         }
+        return distance;
+    }
 
-        if (linesCleared > 0) {
-            scoreManager.addScoreForLines(linesCleared, currentLevel);
+    // Highest occupied row, or TOTAL_HEIGHT when the board is empty
+    public int getTopRow() {
+        return topRow;
+    }
+
+    // Returns the highest filled row of column x, or TOTAL_HEIGHT if it is empty
+    public int getColumnTop(int x) {
+        return columnTop[x];
+    }
+
+    // Zobrist hash of which cells are filled; colours are ignored
+    public long getHash() {
+        return hash;
+    }
+
+    // Filled cells of row y as a bit mask, column x in bit x
+    public int getRowBits(int y) {
+        return (rows[y] & FIELD_MASK) >>> WALL_BITS;
+    }
+
+    // Changes whenever any cell does; equal versions mean an unchanged board
+    public long getVersion() {
+        return version;
+    }
+
+    // Returns how many cells of row y are filled
+    public int getRowFill(int y) {
+        return rowFill[y];
+    }
+
+    // Writes the occupied rows as packed colour nibbles, two cells per byte
+    public void saveState(DataOutput out) throws IOException {
+        out.writeByte(TOTAL_HEIGHT - topRow);
+        for (int y = topRow; y < TOTAL_HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x += 2) {
+                int right = (x + 1 < WIDTH) ? colorRows[y][x + 1] : 0;
+                out.writeByte((colorRows[y][x] << 4) | right);
+            }
+        }
+    }
+
+    // Replaces the board with one written by saveState
+    public void loadState(DataInput in) throws IOException {
+        clearBoard();
+        int height = in.readUnsignedByte();
+        for (int y = TOTAL_HEIGHT - height; y < TOTAL_HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x += 2) {
+                int packed = in.readUnsignedByte();
+                if ((packed >> 4) != 0) placePiece(x, y, packed >> 4);
+                if ((packed & 0xF) != 0) placePiece(x + 1, y, packed & 0xF);
+            }
         }
-        return linesCleared;
     }
 
-    public int[][] getGrid() {
-        return grid;
+    // Returns the colour of a cell for rendering; 0 means empty
+    public int getColor(int x, int y) {
+        return colorRows[y][x];
     }
 
     // Add method to check if a piece is entirely in buffer zone
@@ -0,0 +1,85 @@
+// Scores a board for the bots as a weighted sum of features; higher is better.
+// Features are computed from the row bit masks and column tops, so evaluating a
+// board costs a few hundred instructions and no allocation.
+public class BoardEvaluator {
+    public static final int AGGREGATE_HEIGHT = 0;   // Sum of column heights
+    public static final int MAX_HEIGHT = 1;         // Tallest column
+    public static final int HOLES = 2;              // Empty cells with a filled cell above them
+    public static final int BUMPINESS = 3;          // Sum of height differences between neighbours
+    public static final int WELLS = 4;              // Summed depth of columns lower than both neighbours
+    public static final int ROW_TRANSITIONS = 5;    // Filled/empty changes along each row, walls count as filled
+    public static final int COLUMN_TRANSITIONS = 6; // Filled/empty changes down each column, floor counts as filled
+    public static final int LINES = 7;              // Lines cleared on the way to this board
+    public static final int FEATURE_COUNT = 8;
+
+    public static final String[] FEATURE_NAMES = {
+        "aggregateHeight", "maxHeight", "holes", "bumpiness",
+        "wells", "rowTransitions", "columnTransitions", "lines"
+    };
+
+    public static final double[] DEFAULT_WEIGHTS = {
+        -0.51, -0.10, -3.50, -0.18, -0.30, -0.32, -0.90, 0.76
+    };
+
+    private final double[] weights;
+
+    public BoardEvaluator() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    public BoardEvaluator(double[] weights) {
+        if (weights.length != FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FEATURE_COUNT + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    // Weighted score of a board reached by clearing the given number of lines
+    public double evaluate(Board board, int lines) {
+        int width = board.WIDTH;
+        int height = board.TOTAL_HEIGHT;
+
+        int aggregateHeight = 0, maxHeight = 0, bumpiness = 0, wells = 0;
+        int previous = 0;
+        for (int x = 0; x < width; x++) {
+            int h = height - board.getColumnTop(x);
+            aggregateHeight += h;
+            maxHeight = Math.max(maxHeight, h);
+            if (x > 0) bumpiness += Math.abs(h - previous);
+
+            int left = (x > 0) ? previous : Integer.MAX_VALUE;
+            int right = (x < width - 1) ? height - board.getColumnTop(x + 1) : Integer.MAX_VALUE;
+            int rim = Math.min(left, right);
+            if (rim > h) wells += rim - h;
+            previous = h;
+        }
+
+        // Walk the stack top down keeping a mask of columns that have a block above
+        int walls = 1 | (1 << (width + 1));
+        int holes = 0, rowTransitions = 0, columnTransitions = 0;
+        int covered = 0, above = 0;
+        for (int y = board.getTopRow(); y < height; y++) {
+            int bits = board.getRowBits(y);
+            int row = (bits << 1) | walls;
+            rowTransitions += Integer.bitCount((row ^ (row >>> 1)) & ((1 << (width + 1)) - 1));
+            columnTransitions += Integer.bitCount(bits ^ above);
+            holes += Integer.bitCount(covered & ~bits);
+            covered |= bits;
+            above = bits;
+        }
+        columnTransitions += width - Integer.bitCount(above); // Gaps resting on the floor
+
+        return weights[AGGREGATE_HEIGHT] * aggregateHeight
+                + weights[MAX_HEIGHT] * maxHeight
+                + weights[HOLES] * holes
+                + weights[BUMPINESS] * bumpiness
+                + weights[WELLS] * wells
+                + weights[ROW_TRANSITIONS] * rowTransitions
+                + weights[COLUMN_TRANSITIONS] * columnTransitions
+                + weights[LINES] * lines;
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.concurrent.ForkJoinPool;
+
+// Base class for bots that play by choosing a placement for each piece. The
+// subclass picks where the piece goes; this class turns that into the same input
+// taps a player would make, following the shortest path from MoveGenerator and
+// finishing with a hard drop. If gravity knocks the piece off the path, the path
+// is searched again from where the piece is, and the bot chooses again if the
+// target can no longer be reached.
+public abstract class Bot implements Controller {
+    // Where a bot wants the current piece to go
+    public static final class Plan {
+        public final boolean hold;   // Hold first, then place the piece that comes out
+        public final int placement;  // Resting PieceState of the piece being placed
+
+        public Plan(boolean hold, int placement) {
+            this.hold = hold;
+            this.placement = placement;
+        }
+    }
+
+    // Builds a bot by name: "heuristic", "beam" or "mcts". The pool parallelises the
+    // search where the bot supports it; pass null when games already run in parallel.
+    // The seed drives bots that search at random, so a seeded run can be repeated.
+    public static Bot create(String name, ForkJoinPool pool, long seed) {
+        BoardEvaluator evaluator = new BoardEvaluator();
+        switch (name) {
+            case "heuristic": return new HeuristicBot(evaluator, pool, 3);
+            case "beam": return new BeamSearchBot(evaluator, 16, 1 << 18);
+            case "mcts": return new MctsBot(evaluator, pool, 16, seed);
+            default: throw new IllegalArgumentException("Unknown bot " + name);
+        }
+    }
+
+    private MoveGenerator moves;
+    private final byte[] searchPath = new byte[256]; // Path as MoveGenerator returns it
+    private final byte[] path = new byte[256];       // Same path with every drop one row per move
+    private final int[] pathStates = new int[256];   // State before each move of the path
+    private int pathLength = -1;                    // -1 until a path has been found
+    private int plannedFor = -1;                    // Pieces placed when the plan was made
+    private Plan plan;
+    private long targetCells;
+    private int lastInputs;
+
+    // Chooses a placement for the current piece, or returns null to just hard drop
+    protected abstract Plan choose(TetrisSimulation simulation);
+
+    @Override
+    public int nextInputs(TetrisSimulation simulation) {
+        if (simulation.isGameOver()) return 0;
+        Board board = simulation.getBoard();
+        if (moves == null) moves = new MoveGenerator(board);
+
+        if (simulation.getPiecesPlaced() != plannedFor) {
+            plannedFor = simulation.getPiecesPlaced();
+            setPlan(choose(simulation));
+        }
+
+        // Release between taps so every tap registers as a new press
+        if (lastInputs != 0) {
+            lastInputs = 0;
+            return 0;
+        }
+        if (plan == null) return tap(TetrisSimulation.INPUT_HARD_DROP);
+        if (plan.hold && simulation.canHold()) return tap(TetrisSimulation.INPUT_HOLD);
+
+        int state = simulation.getCurrentPiece().getState();
+        if (moves.cellKey(PieceState.drop(board, state)) == targetCells) {
+            return tap(TetrisSimulation.INPUT_HARD_DROP);
+        }
+
+        int step = stepOnPath(state);
+        if (step < 0 && findPath(board, state)) step = 0;
+        if (step < 0) {
+            setPlan(choose(simulation)); // Target is out of reach now, pick another
+            return 0;
+        }
+        return tap(inputFor(path[step]));
+    }
+
+    private void setPlan(Plan plan) {
+        this.plan = plan;
+        pathLength = -1;
+        if (plan != null) targetCells = moves.cellKey(plan.placement);
+    }
+
+    private int stepOnPath(int state) {
+        for (int i = 0; i < pathLength; i++) {
+            if (pathStates[i] == state) return i;
+        }
+        return -1;
+    }
+
+    // Searches for the shortest path from state to the planned cells. DOWN and
+    // SONIC moves cover several rows, but a soft drop tap only moves one, so they
+    // are spelled out as one DOWN per row. That keeps the piece on pathStates
+    // after every tap, instead of searching again after each row.
+    private boolean findPath(Board board, int state) {
+        pathLength = -1;
+        int count = moves.generate(board, state);
+        for (int i = 0; i < count; i++) {
+            if (moves.getCellKey(i) != targetCells) continue;
+            int searchLength = moves.getPath(i, searchPath);
+            int length = 0;
+            int current = state;
+            for (int n = 0; n < searchLength; n++) {
+                byte move = searchPath[n];
+                int next = MoveGenerator.apply(board, current, move);
+                if (move == MoveGenerator.SONIC) move = MoveGenerator.DOWN;
+                do {
+                    if (length == path.length) return false;
+                    path[length] = move;
+                    pathStates[length++] = current;
+                    current = (move == MoveGenerator.DOWN) ? PieceState.move(board, current, 0, 1) : next;
+                    if (current == PieceState.NONE) return false;
+                } while (current != next);
+            }
+            pathLength = length;
+            return pathLength > 0;
+        }
+        return false;
+    }
+
+    private static int inputFor(byte move) {
+        switch (move) {
+            case MoveGenerator.LEFT: return TetrisSimulation.INPUT_LEFT;
+            case MoveGenerator.RIGHT: return TetrisSimulation.INPUT_RIGHT;
+            case MoveGenerator.ROTATE_CW: return TetrisSimulation.INPUT_ROTATE_CW;
+            case MoveGenerator.ROTATE_CCW: return TetrisSimulation.INPUT_ROTATE_CCW;
+            default: return TetrisSimulation.INPUT_SOFT_DROP;
+        }
+    }
+
+    private int tap(int input) {
+        lastInputs = input;
+        return input;
+    }
+}
@@ -0,0 +1,6 @@
+// Decides what a player does on each simulation tick. Bots, replays and the
+// batch tools all drive a TetrisSimulation through this one entry point.
+public interface Controller {
+    // Returns the TetrisSimulation input bits for the next tick
+    int nextInputs(TetrisSimulation simulation);
+}
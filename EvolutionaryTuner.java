@@ -0,0 +1,235 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Tunes BoardEvaluator weights with a genetic algorithm. Every generation each
+// candidate plays the same seeded headless games with HeuristicBot, and its fitness
+// is the mean number of lines cleared. All candidates' games are queued on one
+// ForkJoin pool at once, so every core stays busy until the generation is done.
+//
+// The population is written to a checkpoint file after every generation (through a
+// temporary file and an atomic rename), and a run started with an existing
+// checkpoint carries on from it. Seeds and random choices derive from the run seed
+// and generation number, so a resumed run makes the same choices it would have.
+//
+// Usage: java EvolutionaryTuner <checkpoint> [generations] [population] [games] [maxSeconds] [threads] [depth]
+public class EvolutionaryTuner {
+    private static final double ELITE_FRACTION = 0.2;     // Best candidates kept unchanged
+    private static final double OFFSPRING_FRACTION = 0.3; // Worst candidates replaced each generation
+    private static final double MUTATION_RATE = 0.1;      // Chance of mutating each child
+    private static final double MUTATION_SIZE = 0.2;
+    private static final int TOURNAMENT = 4;
+
+    private final int games;
+    private final int maxSeconds;
+    private final int depth;
+    private final ForkJoinPool pool;
+
+    private long runSeed;
+    private int generation;
+    private double[][] population;
+    private double[] fitness;
+
+    public EvolutionaryTuner(int games, int maxSeconds, int depth, ForkJoinPool pool) {
+        this.games = games;
+        this.maxSeconds = maxSeconds;
+        this.depth = depth;
+        this.pool = pool;
+    }
+
+    // Fresh population of random unit-length weight vectors
+    public void initialise(long runSeed, int size) {
+        this.runSeed = runSeed;
+        generation = 0;
+        SplittableRandom random = randomFor(-1);
+        population = new double[size][];
+        fitness = new double[size];
+        population[0] = normalise(BoardEvaluator.DEFAULT_WEIGHTS.clone());
+        for (int i = 1; i < size; i++) {
+            double[] weights = new double[BoardEvaluator.FEATURE_COUNT];
+            for (int f = 0; f < weights.length; f++) weights[f] = random.nextDouble(-1, 1);
+            population[i] = normalise(weights);
+        }
+    }
+
+    // Scores every candidate on this generation's games, then breeds the next population
+    public void runGeneration() {
+        long baseSeed = randomFor(0).nextLong(); // Shared by every candidate this generation
+        List<ForkJoinTask<BatchSimulator.Stats>> batches = new ArrayList<>(population.length);
+        for (double[] weights : population) {
+            BoardEvaluator evaluator = new BoardEvaluator(weights);
+            BatchSimulator simulator = new BatchSimulator(s -> new HeuristicBot(evaluator, null, depth), maxSeconds);
+            ForkJoinTask<BatchSimulator.Stats> batch = simulator.task(baseSeed, 0, games);
+            pool.execute(batch);
+            batches.add(batch);
+        }
+        for (int i = 0; i < population.length; i++) {
+            fitness[i] = batches.get(i).join().lines.getMean();
+        }
+        sortByFitness();
+        breed(randomFor(1));
+        generation++;
+    }
+
+    private void sortByFitness() {
+        Integer[] order = new Integer[population.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        double[][] sortedPopulation = new double[population.length][];
+        double[] sortedFitness = new double[fitness.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedPopulation[i] = population[order[i]];
+            sortedFitness[i] = fitness[order[i]];
+        }
+        population = sortedPopulation;
+        fitness = sortedFitness;
+    }
+
+    // Replaces the worst candidates with children of tournament winners. A child is the
+    // fitness-weighted average of its parents, occasionally nudged along one feature.
+    private void breed(SplittableRandom random) {
+        int size = population.length;
+        int elites = Math.max(1, (int) (size * ELITE_FRACTION));
+        int children = Math.min(size - elites, Math.max(1, (int) (size * OFFSPRING_FRACTION)));
+        double[][] offspring = new double[children][];
+        for (int c = 0; c < children; c++) {
+            int a = tournament(random), b = tournament(random);
+            double fa = Math.max(fitness[a], 1e-9), fb = Math.max(fitness[b], 1e-9);
+            double[] child = new double[BoardEvaluator.FEATURE_COUNT];
+            for (int f = 0; f < child.length; f++) {
+                child[f] = population[a][f] * fa + population[b][f] * fb;
+            }
+            if (random.nextDouble() < MUTATION_RATE) {
+                child[random.nextInt(child.length)] += random.nextDouble(-MUTATION_SIZE, MUTATION_SIZE);
+            }
+            offspring[c] = normalise(child);
+        }
+        for (int c = 0; c < children; c++) {
+            population[size - 1 - c] = offspring[c];
+            fitness[size - 1 - c] = 0;
+        }
+    }
+
+    // Index of the fittest of a few random candidates
+    private int tournament(SplittableRandom random) {
+        int best = random.nextInt(population.length);
+        for (int i = 1; i < TOURNAMENT; i++) {
+            int other = random.nextInt(population.length);
+            if (fitness[other] > fitness[best]) best = other;
+        }
+        return best;
+    }
+
+    // Evaluation only ranks boards, so weights are kept at unit length
+    private static double[] normalise(double[] weights) {
+        double length = 0;
+        for (double w : weights) length += w * w;
+        length = Math.sqrt(length);
+        if (length == 0) return weights;
+        for (int f = 0; f < weights.length; f++) weights[f] /= length;
+        return weights;
+    }
+
+    private SplittableRandom randomFor(int stream) {
+        return new SplittableRandom(runSeed * 0x9E3779B97F4A7C15L + generation * 31L + stream);
+    }
+
+    // Checkpoint layout: "seed <runSeed>", "generation <n>", then one line per
+    // candidate with its last fitness and weights, best first. Values are written
+    // with Double.toString, which parseDouble reads back exactly, so a resumed run
+    // ranks and breeds the same numbers.
+    public void save(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp)) {
+            out.write("seed " + runSeed + "\n");
+            out.write("generation " + generation + "\n");
+            for (int i = 0; i < population.length; i++) {
+                StringBuilder line = new StringBuilder(Double.toString(fitness[i]));
+                for (double w : population[i]) line.append(' ').append(w);
+                out.write(line.append('\n').toString());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void load(Path path) throws IOException {
+        List<double[]> candidates = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            runSeed = Long.parseLong(in.readLine().split(" ")[1]);
+            generation = Integer.parseInt(in.readLine().split(" ")[1]);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length != BoardEvaluator.FEATURE_COUNT + 1) {
+                    throw new IOException("Bad checkpoint line: " + line);
+                }
+                scores.add(Double.parseDouble(parts[0]));
+                double[] weights = new double[BoardEvaluator.FEATURE_COUNT];
+                for (int f = 0; f < weights.length; f++) weights[f] = Double.parseDouble(parts[f + 1]);
+                candidates.add(weights);
+            }
+        }
+        population = candidates.toArray(new double[0][]);
+        fitness = new double[scores.size()];
+        for (int i = 0; i < fitness.length; i++) fitness[i] = scores.get(i);
+    }
+
+    public int getGeneration() { return generation; }
+    public double[] getBest() { return population[0].clone(); }
+    public double getBestFitness() { return fitness[0]; }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java EvolutionaryTuner <checkpoint> [generations] [population] [games] [maxSeconds] [threads] [depth]");
+            System.exit(2);
+        }
+        Path checkpoint = Paths.get(args[0]);
+        int generations = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        int size = (args.length > 2) ? Integer.parseInt(args[2]) : 24;
+        int games = (args.length > 3) ? Integer.parseInt(args[3]) : 32;
+        int maxSeconds = (args.length > 4) ? Integer.parseInt(args[4]) : 120;
+        int threads = (args.length > 5) ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        int depth = (args.length > 6) ? Integer.parseInt(args[6]) : 1;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            EvolutionaryTuner tuner = new EvolutionaryTuner(games, maxSeconds, depth, pool);
+            if (Files.exists(checkpoint)) {
+                tuner.load(checkpoint);
+                System.out.printf("Resuming %s at generation %d%n", checkpoint, tuner.getGeneration());
+            } else {
+                tuner.initialise(System.nanoTime(), size);
+            }
+
+            while (tuner.getGeneration() < generations) {
+                long start = System.nanoTime();
+                tuner.runGeneration();
+                tuner.save(checkpoint);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                StringBuilder best = new StringBuilder();
+                double[] weights = tuner.getBest();
+                for (int f = 0; f < weights.length; f++) {
+                    best.append(String.format(Locale.ROOT, " %s=%.3f", BoardEvaluator.FEATURE_NAMES[f], weights[f]));
+                }
+                System.out.printf("generation %d: best %.1f lines in %.1fs%n %s%n",
+                        tuner.getGeneration(), tuner.getBestFitness(), seconds, best);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
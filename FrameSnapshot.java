@@ -0,0 +1,111 @@
+// Everything the renderer needs to draw one frame, copied out of the game on the
+// logic thread. Snapshots are passed to the renderer through a TripleBuffer: the
+// logic thread only fills one it owns, and a published snapshot is not written
+// again until the renderer has moved on from it, so a frame never shows a
+// half-updated board. Cells are in visible coordinates, row 0 being the top
+// visible row.
+public class FrameSnapshot {
+    // Which screen is showing
+    public static final int PLAYING = 0;
+    public static final int COUNTDOWN = 1;
+    public static final int GAME_OVER = 2;
+    public static final int HELP = 3;
+    public static final int PAUSED = 4;
+
+    private final int width, height;
+    private final byte[] cells;             // Colour of each visible cell, [y * width + x]
+    private long boardVersion = -1;         // Version of the board copied into cells
+    private long tickTime;                  // When the logic step this shows was due, from System.nanoTime
+    private final int[] pieceCells = new int[8]; // Piece then ghost cells as y * width + x, -1 if hidden
+    private int pieceColor;
+    private double fallProgress, fallSpeed; // Gravity towards the next row, 0 once landed
+    private final int[] previews;
+    private int held;                       // Held piece type, -1 when empty
+    private int score, level;
+    private int screen;
+    private long countdown;                 // Seconds left while counting down
+    private int pauseSelection;
+    private String[] pauseOptions;
+
+    public FrameSnapshot(TetrisSimulation simulation) {
+        Board board = simulation.getBoard();
+        width = board.WIDTH;
+        height = board.VISIBLE_HEIGHT;
+        cells = new byte[width * height];
+        previews = new int[simulation.getPieceGenerator().getPreviewSize()];
+        capture(simulation, 0, 0);
+    }
+
+    // Copies the game into this snapshot. boardVersion must change whenever the
+    // board does; the cells are only copied when it differs from the last capture.
+    // tickTime is when the step just run was due, for interpolating between steps.
+    public void capture(TetrisSimulation simulation, long boardVersion, long tickTime) {
+        this.tickTime = tickTime;
+        Board board = simulation.getBoard();
+        if (boardVersion != this.boardVersion) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    cells[y * width + x] = (byte) board.getColor(x, y + board.BUFFER_HEIGHT);
+                }
+            }
+            this.boardVersion = boardVersion;
+        }
+
+        GameState gameState = simulation.getGameState();
+        if (gameState.isShowCountdown()) screen = COUNTDOWN;
+        else if (gameState.isGameOver()) screen = GAME_OVER;
+        else if (gameState.isShowHelp()) screen = HELP;
+        else if (gameState.isPaused()) screen = PAUSED;
+        else screen = PLAYING;
+        countdown = gameState.getCountdownRemaining();
+        pauseSelection = gameState.getPauseMenuSelection();
+        pauseOptions = gameState.getPauseMenuOptions();
+
+        Piece piece = simulation.getCurrentPiece();
+        int[][] shape = piece.getShape();
+        int ghostY = piece.getGhostY();
+        pieceColor = piece.getColor();
+        boolean falling = screen == PLAYING && !piece.isLanded();
+        fallProgress = falling ? simulation.getFallProgress() : 0;
+        fallSpeed = falling ? simulation.getFallSpeed() : 0;
+        for (int i = 0; i < 4; i++) {
+            int x = piece.getX() + shape[i][0];
+            int y = piece.getY() + shape[i][1] - board.BUFFER_HEIGHT;
+            int gy = ghostY + shape[i][1] - board.BUFFER_HEIGHT;
+            pieceCells[i] = (y >= 0) ? y * width + x : -1;
+            pieceCells[4 + i] = (gy >= 0) ? gy * width + x : -1;
+        }
+
+        simulation.getPieceGenerator().peekNextPieces(previews);
+        Integer heldType = simulation.getHeldPieceType();
+        held = (heldType != null) ? heldType : -1;
+        ScoreManager scoreManager = simulation.getScoreManager();
+        score = scoreManager.getScore();
+        level = scoreManager.getLevel();
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getColor(int x, int y) { return cells[y * width + x]; }
+    public long getBoardVersion() { return boardVersion; }
+    public long getTickTime() { return tickTime; }
+
+    // Cell i of the piece (0-3) or its ghost (4-7) as y * width + x, -1 if not visible
+    public int getPieceCell(int i) { return pieceCells[i]; }
+    public int getPieceColor() { return pieceColor; }
+
+    // Fraction of a row gravity had moved the piece, and rows it moves per step
+    public double getFallProgress() { return fallProgress; }
+    public double getFallSpeed() { return fallSpeed; }
+
+    public int getPreviewCount() { return previews.length; }
+    public int getPreview(int i) { return previews[i]; }
+    public int getHeld() { return held; }
+    public int getScore() { return score; }
+    public int getLevel() { return level; }
+
+    public int getScreen() { return screen; }
+    public long getCountdown() { return countdown; }
+    public int getPauseSelection() { return pauseSelection; }
+    public String[] getPauseOptions() { return pauseOptions; }
+}
@@ -12,6 +12,8 @@ import java.io.*;
 
 import java.util.Stack;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.imageio.*;
 import javax.sound.sampled.*;
@@ -91,19 +93,9 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 				.addKeyEventDispatcher(new KeyEventDispatcher() {
 					@Override
 					public boolean dispatchKeyEvent(KeyEvent e) {
-						switch (e.getID()) {
-						case KeyEvent.KEY_PRESSED:
-							GameEngine.this.keyPressed(e);
-							return false;
-						case KeyEvent.KEY_RELEASED:
-							GameEngine.this.keyReleased(e);
-							return false;
-						case KeyEvent.KEY_TYPED:
-							GameEngine.this.keyTyped(e);
-							return false;
-						default:
-							return false; // do not consume the event
-						}
+						// The logic thread handles key events between steps
+						mKeyQueue.add(e);
+						return false; // do not consume the event
 					}
 				});
 
@@ -112,7 +104,30 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		mFrame.setSize(width + insets.left + insets.right, height + insets.top + insets.bottom);
 	}
 
+	// Passes a key event on to the matching keyboard function
+	void handleKeyEvent(KeyEvent e) {
+		switch (e.getID()) {
+		case KeyEvent.KEY_PRESSED:
+			keyPressed(e);
+			break;
+		case KeyEvent.KEY_RELEASED:
+			keyReleased(e);
+			break;
+		case KeyEvent.KEY_TYPED:
+			keyTyped(e);
+			break;
+		default:
+			break;
+		}
+	}
+
 	public void setWindowSize(final int width, final int height) {
+		// Without a display there is no window, only the size to draw at
+		if(GraphicsEnvironment.isHeadless()) {
+			mWidth = width;
+			mHeight = height;
+			return;
+		}
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
 			public void run() {
@@ -149,6 +164,11 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		mWidth = 500;
 		mHeight = 500;
 
+		// Without a display the game can still draw into images, see startDrawingToImage
+		if(GraphicsEnvironment.isHeadless()) {
+			return;
+		}
+
 		// Create window
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
@@ -173,6 +193,15 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		createGame(game, 30);
 	}
 
+	// Create Game Function that draws with the active rendering loop
+	public static void createActiveGame(GameEngine game, int framerate, int pacing) {
+		// Initialise Game
+		game.init();
+
+		// Start the render thread
+		game.activeGameLoop(framerate, pacing);
+	}
+
 	// Game Timer
 	protected class GameTimer extends Timer {
 		private static final long serialVersionUID = 1L;
@@ -197,24 +226,161 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		}
 	}
 	
+	//-------------------------------------------------------
+	// Fixed timestep
+	//-------------------------------------------------------
+	// The game logic runs in fixed steps of tickNanos, independent of the
+	// framerate. Each time runTicks is called the real time passed (from
+	// System.nanoTime) is added to an accumulator and update() is called
+	// once per whole step, so update() always sees exactly the same dt.
+	long tickNanos = 1000000000L / 60;
+	long accumulator = 0, lastTickTime = 0;
+
+	// Most logic steps run in one frame. After a long hitch the rest of the
+	// backlog is dropped so the game slows down instead of spiralling.
+	int maxCatchUpTicks = 8;
+
+	// Sets how many logic steps run per second
+	public void setTickRate(int ticksPerSecond) {
+		if (ticksPerSecond < 1) ticksPerSecond = 1;
+		tickNanos = 1000000000L / ticksPerSecond;
+	}
+
+	// Time (from System.nanoTime) the last logic step was due. Only call this on
+	// the logic thread; games pass it to the drawing thread with their snapshot.
+	public long getTickTime() {
+		return lastTickTime - accumulator;
+	}
+
+	// Returns how far the current frame is between the logic step due at
+	// tickTime and the next one, from 0 to 1
+	public double getInterpolation(long tickTime) {
+		if(tickTime == 0) {
+			return 0;
+		}
+		double elapsed = System.nanoTime() - tickTime;
+		return Math.max(0.0, Math.min(1.0, elapsed / tickNanos));
+	}
+
+	// Runs as many fixed logic steps as the time since the last call covers
+	public void runTicks() {
+		long now = System.nanoTime();
+		if(lastTickTime == 0) {
+			lastTickTime = now;
+		}
+		accumulator += now - lastTickTime;
+		lastTickTime = now;
+
+		int ticks = 0;
+		while(accumulator >= tickNanos) {
+			if(ticks == maxCatchUpTicks) {
+				// Drop the backlog
+				accumulator %= tickNanos;
+				break;
+			}
+			update(tickNanos / 1e9);
+			accumulator -= tickNanos;
+			ticks++;
+		}
+	}
+
+	//-------------------------------------------------------
+	// Logic thread
+	//-------------------------------------------------------
+	// The game logic runs on its own thread at the tick rate, whichever way
+	// frames are drawn, so a slow paint can never hold up gravity or input.
+	// Key events are queued by the Event Dispatch Thread and handled on the
+	// logic thread between steps. After each pass publishFrame() is called
+	// so the game can hand a snapshot of itself to the drawing thread; the
+	// game must not share its live objects with paintComponent().
+	Thread mLogicThread;
+	volatile boolean mRunningLogic = false;
+	ConcurrentLinkedQueue<KeyEvent> mKeyQueue = new ConcurrentLinkedQueue<KeyEvent>();
+
+	// Called on the logic thread after each pass of key events and logic steps
+	public void publishFrame() {}
+
+	// Starts the logic thread
+	public void startLogicThread() {
+		mRunningLogic = true;
+		mLogicThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				logicLoop();
+			}
+		}, "Logic thread");
+		mLogicThread.setDaemon(true);
+		mLogicThread.start();
+	}
+
+	// Stops the logic thread after its current pass
+	public void stopLogicThread() {
+		mRunningLogic = false;
+	}
+
+	void logicLoop() {
+		long nextTick = System.nanoTime();
+		while(mRunningLogic) {
+			try {
+				// Handle input and update the Game in fixed steps
+				processKeyEvents();
+				runTicks();
+
+				// Hand the new state to the drawing thread
+				publishFrame();
+			} catch(RuntimeException e) {
+				// Print Error, and keep the thread alive so the game does not freeze
+				System.out.println("Error: game logic failed: " + e);
+				e.printStackTrace();
+			}
+
+			// Wait for the next step
+			nextTick += tickNanos;
+			long now = System.nanoTime();
+			if(now - nextTick > tickNanos) {
+				// Too far behind, runTicks catches up on its own
+				nextTick = now;
+			}
+
+			// Park rather than spin: a late wake-up only moves the work into the
+			// next runTicks, which counts real time anyway
+			long remaining;
+			while(mRunningLogic && (remaining = nextTick - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(remaining);
+			}
+		}
+	}
+
+	// Runs the key events queued since the last pass
+	void processKeyEvents() {
+		KeyEvent event;
+		while((event = mKeyQueue.poll()) != null) {
+			handleKeyEvent(event);
+		}
+	}
+
 	// Main Loop of the game. Runs continuously
-	// and calls all the updates of the game and
-	// tells the game to display a new frame.
+	// and tells the game to display a new frame.
 	GameTimer timer = new GameTimer(30, new ActionListener() {
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			// Determine the time step
-			double passedTime = measureTime();
-			double dt = passedTime / 1000.;
-
-			// Update the Game
-			update(dt);
-
 			// Tell the Game to draw
-			mPanel.repaint();
+			requestRepaint();
 		}
 	});
 
+	// Called every frame to ask for the window to be drawn. Override
+	// to repaint only the parts of the window that changed.
+	public void requestRepaint() {
+		mPanel.repaint();
+	}
+
+	// Asks for the rectangle (x,y,w,h) of the window to be drawn. Painting
+	// is clipped to the requested rectangles.
+	public void repaint(int x, int y, int w, int h) {
+		mPanel.repaint(x, y, w, h);
+	}
+
 	// The GameEngine main Panel
 	protected class GamePanel extends JPanel {
 		private static final long serialVersionUID = 1L;
@@ -230,7 +396,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 			mTransforms.push(mGraphics.getTransform());
 
 			// Rendering settings
-			mGraphics.setRenderingHints(new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON));
+			mGraphics.setRenderingHints(mRenderingHints);
 
 			// Paint the game
 			if (initialised) {
@@ -247,9 +413,169 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		timer.setRepeats(true);
 
 		// Main loop runs until program is closed
+		startLogicThread();
 		timer.start();
 	}
 
+	//-------------------------------------------------------
+	// Active rendering
+	//-------------------------------------------------------
+	// Instead of asking Swing to repaint, the active loop draws every frame
+	// itself into a triple-buffered Canvas from its own render thread, so
+	// frames reach the screen when they are drawn rather than when Swing
+	// gets round to them. The logic keeps running on the logic thread.
+
+	// Frame pacing modes for activeGameLoop
+	public static final int PACE_CAPPED = 0;   // Frames at the requested framerate
+	public static final int PACE_UNCAPPED = 1; // Frames as fast as they can be drawn
+	public static final int PACE_VSYNC = 2;    // Frames at the display's refresh rate. Java cannot
+	                                           // wait for the vertical blank, so this only matches its rate
+
+	Canvas mCanvas;
+	BufferStrategy mStrategy;
+	Thread mRenderThread;
+	volatile boolean mRendering = false;
+
+	// Sleeping can overshoot by a millisecond or more, so the last
+	// stretch before a frame is due is spent yielding instead
+	long mSpinNanos = 1500000;
+
+	// Starts the render thread, drawing at the given framerate and pacing
+	public void activeGameLoop(int framerate, int pacing) {
+		initialised = true; // assume init has been called or won't be called
+
+		// Swap the panel for a canvas once the window exists
+		try {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					installCanvas();
+				}
+			});
+		} catch(Exception e) {
+			// Show Error Message
+			System.out.println("Error: could not create the render canvas");
+			System.exit(1);
+		}
+
+		if(pacing == PACE_VSYNC) {
+			framerate = getDisplayRefreshRate();
+		}
+		final long frameNanos = (pacing == PACE_UNCAPPED) ? 0 : 1000000000L / Math.max(1, framerate);
+
+		// Render until the program is closed
+		startLogicThread();
+		mRendering = true;
+		mRenderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				renderLoop(frameNanos);
+			}
+		}, "Render thread");
+		mRenderThread.setDaemon(true);
+		mRenderThread.start();
+	}
+
+	// Stops the render thread after the frame it is drawing
+	public void stopActiveGameLoop() {
+		mRendering = false;
+	}
+
+	// Replaces the game panel with a canvas that has three buffers
+	void installCanvas() {
+		mCanvas = new Canvas();
+		mCanvas.setIgnoreRepaint(true);
+		mCanvas.setBackground(Color.BLACK);
+		mCanvas.addMouseListener(this);
+		mCanvas.addMouseMotionListener(this);
+
+		mFrame.remove(mPanel);
+		mFrame.add(mCanvas);
+		mFrame.setIgnoreRepaint(true);
+		mFrame.validate();
+
+		mCanvas.createBufferStrategy(3);
+		mStrategy = mCanvas.getBufferStrategy();
+	}
+
+	// Returns true when frames are drawn by the active render thread
+	public boolean isActiveRendering() {
+		return mRendering;
+	}
+
+	// Refresh rate of the display showing the window, 60 if it is unknown
+	public int getDisplayRefreshRate() {
+		GraphicsConfiguration config = mFrame.getGraphicsConfiguration();
+		int rate = (config != null) ? config.getDevice().getDisplayMode().getRefreshRate() : DisplayMode.REFRESH_RATE_UNKNOWN;
+		return (rate == DisplayMode.REFRESH_RATE_UNKNOWN) ? 60 : rate;
+	}
+
+	void renderLoop(long frameNanos) {
+		long nextFrame = System.nanoTime();
+		while(mRendering) {
+			try {
+				// Draw the frame and show it
+				renderFrame();
+			} catch(RuntimeException e) {
+				// Print Error, and carry on with the next frame instead of freezing the screen
+				System.out.println("Error: could not draw frame: " + e);
+				e.printStackTrace();
+			}
+
+			// Wait for the next frame
+			if(frameNanos > 0) {
+				nextFrame += frameNanos;
+				long now = System.nanoTime();
+				if(now - nextFrame > frameNanos) {
+					// Too far behind to catch up, count again from now
+					nextFrame = now;
+				}
+				waitUntil(nextFrame);
+			} else {
+				// Let the Event Dispatch Thread in
+				Thread.yield();
+			}
+		}
+	}
+
+	// Draws the game into the back buffer and flips it to the screen. The
+	// loops redraw the frame if the buffer contents were lost meanwhile.
+	void renderFrame() {
+		do {
+			do {
+				Graphics2D graphics = (Graphics2D)mStrategy.getDrawGraphics();
+				mGraphics = graphics;
+
+				// Reset all transforms
+				mTransforms.clear();
+				mTransforms.push(mGraphics.getTransform());
+
+				// Rendering settings
+				mGraphics.setRenderingHints(mRenderingHints);
+
+				// Paint the game
+				paintComponent();
+				graphics.dispose();
+			} while(mStrategy.contentsRestored());
+			mStrategy.show();
+		} while(mStrategy.contentsLost());
+
+		// Push the frame to the screen now instead of when the window system flushes
+		Toolkit.getDefaultToolkit().sync();
+	}
+
+	// Sleeps until shortly before deadline (from System.nanoTime), then yields until it
+	void waitUntil(long deadline) {
+		long remaining;
+		while((remaining = deadline - System.nanoTime()) > 0) {
+			if(remaining > mSpinNanos) {
+				sleep((remaining - mSpinNanos) / 1e6);
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
 	//-------------------------------------------------------
 	// Initialise function
 	//-------------------------------------------------------
@@ -258,6 +584,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	//-------------------------------------------------------
 	// Update function
 	//-------------------------------------------------------
+	// Called once per fixed logic step with dt = 1 / tick rate
 	public abstract void update(double dt);
 
 	//-------------------------------------------------------
@@ -320,6 +647,69 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	Color yellow = Color.YELLOW;
 	Color white = Color.WHITE;
 
+	// Returns the area of the window being painted this frame, stored in r
+	public Rectangle getClipBounds(Rectangle r) {
+		// A null clip means the whole window
+		r.setBounds(0, 0, mWidth, mHeight);
+		return mGraphics.getClipBounds(r);
+	}
+
+	//-------------------------------------------------------
+	// Cached drawing objects
+	//-------------------------------------------------------
+	// Colors, fonts and strokes never change once made, so each distinct
+	// one is created once and reused, and drawing stops allocating once
+	// the values in use have been seen. The caches are direct-mapped: a
+	// new value only replaces one that falls in the same slot.
+	Color[] mColorCache = new Color[256];
+	Font[] mFontCache = new Font[64];
+	BasicStroke[] mStrokeCache = new BasicStroke[32];
+	BasicStroke mDefaultStroke = new BasicStroke(1.0f);
+	RenderingHints mRenderingHints = new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+	// Scratch shapes reused by the drawing functions
+	Line2D.Double mLine = new Line2D.Double();
+	Rectangle2D.Double mRectangle = new Rectangle2D.Double();
+	Ellipse2D.Double mEllipse = new Ellipse2D.Double();
+
+	// Returns the color (red,green,blue,alpha), each from 0 to 255
+	public Color getColor(int red, int green, int blue, int alpha) {
+		int argb = (alpha << 24) | (red << 16) | (green << 8) | blue;
+		int slot = (argb * 0x9E3779B1) >>> 24;
+		Color color = mColorCache[slot];
+		if(color == null || color.getRGB() != argb) {
+			// Create and remember the color
+			color = new Color(red, green, blue, alpha);
+			mColorCache[slot] = color;
+		}
+		return color;
+	}
+
+	// Returns the font with the given name, style and size
+	public Font getFont(String name, int style, int size) {
+		int slot = ((name.hashCode() * 31 + style) * 31 + size) & (mFontCache.length - 1);
+		Font font = mFontCache[slot];
+		if(font == null || font.getSize() != size || font.getStyle() != style || !font.getName().equals(name)) {
+			// Create and remember the font
+			font = new Font(name, style, size);
+			mFontCache[slot] = font;
+		}
+		return font;
+	}
+
+	// Returns a solid stroke of width l
+	public BasicStroke getStroke(double l) {
+		float width = (float)l;
+		int slot = (Float.floatToIntBits(width) * 0x9E3779B1) >>> 27;
+		BasicStroke stroke = mStrokeCache[slot];
+		if(stroke == null || stroke.getLineWidth() != width) {
+			// Create and remember the stroke
+			stroke = new BasicStroke(width);
+			mStrokeCache[slot] = stroke;
+		}
+		return stroke;
+	}
+
 	// Changes the background Color to the color c
 	public void changeBackgroundColor(Color c) {
 		// Set background colour
@@ -339,7 +729,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		if(blue > 255) {blue = 255;}
 
 		// Set background colour
-		mGraphics.setBackground(new Color(red,green,blue));
+		mGraphics.setBackground(getColor(red, green, blue, 255));
 	}
 
 	// Clears the background, makes the whole window whatever the background color is
@@ -367,75 +757,83 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		if(blue > 255) {blue = 255;}
 
 		// Set colour
-		mGraphics.setColor(new Color(red,green,blue));
+		mGraphics.setColor(getColor(red, green, blue, 255));
 	}
 
 	// Draws a line from (x1,y2) to (x2,y2)
 	void drawLine(double x1, double y1, double x2, double y2) {
 		// Draw a Line
-		mGraphics.draw(new Line2D.Double(x1, y1, x2, y2));
+		mLine.setLine(x1, y1, x2, y2);
+		mGraphics.draw(mLine);
 	}
 
 	// Draws a line from (x1,y2) to (x2,y2) with width l
 	void drawLine(double x1, double y1, double x2, double y2, double l) {
 		// Set the stroke
-		mGraphics.setStroke(new BasicStroke((float)l));
+		mGraphics.setStroke(getStroke(l));
 
 		// Draw a Line
-		mGraphics.draw(new Line2D.Double(x1, y1, x2, y2));
+		mLine.setLine(x1, y1, x2, y2);
+		mGraphics.draw(mLine);
 
 		// Reset the stroke
-		mGraphics.setStroke(new BasicStroke(1.0f));
+		mGraphics.setStroke(mDefaultStroke);
 	}
 
 	// This function draws a rectangle at (x,y) with width and height (w,h)
 	void drawRectangle(double x, double y, double w, double h) {
 		// Draw a Rectangle
-		mGraphics.draw(new Rectangle2D.Double(x, y, w, h));
+		mRectangle.setRect(x, y, w, h);
+		mGraphics.draw(mRectangle);
 	}
 
 	// This function draws a rectangle at (x,y) with width and height (w,h)
 	// with a line of width l
 	void drawRectangle(double x, double y, double w, double h, double l) {
 		// Set the stroke
-		mGraphics.setStroke(new BasicStroke((float)l));
+		mGraphics.setStroke(getStroke(l));
 
 		// Draw a Rectangle
-		mGraphics.draw(new Rectangle2D.Double(x, y, w, h));
+		mRectangle.setRect(x, y, w, h);
+		mGraphics.draw(mRectangle);
 
 		// Reset the stroke
-		mGraphics.setStroke(new BasicStroke(1.0f));
+		mGraphics.setStroke(mDefaultStroke);
 	}
 
 	// This function fills in a rectangle at (x,y) with width and height (w,h)
 	void drawSolidRectangle(double x, double y, double w, double h) {
 		// Fill a Rectangle
-		mGraphics.fill(new Rectangle2D.Double(x, y, w, h));
+		mRectangle.setRect(x, y, w, h);
+		mGraphics.fill(mRectangle);
 	}
 
 	// This function draws a circle at (x,y) with radius
 	void drawCircle(double x, double y, double radius) {
 		// Draw a Circle
-		mGraphics.draw(new Ellipse2D.Double(x-radius, y-radius, radius*2, radius*2));
+		mEllipse.setFrame(x-radius, y-radius, radius*2, radius*2);
+		mGraphics.draw(mEllipse);
 	}
 
 	// This function draws a circle at (x,y) with radius
 	// with a line of width l
 	void drawCircle(double x, double y, double radius, double l) {
 		// Set the stroke
-		mGraphics.setStroke(new BasicStroke((float)l));
+		mGraphics.setStroke(getStroke(l));
 
 		// Draw a Circle
-		mGraphics.draw(new Ellipse2D.Double(x-radius, y-radius, radius*2, radius*2));
+		mEllipse.setFrame(x-radius, y-radius, radius*2, radius*2);
+		mGraphics.draw(mEllipse);
 
 		// Reset the stroke
-		mGraphics.setStroke(new BasicStroke(1.0f));
+		mGraphics.setStroke(mDefaultStroke);
 	}
 
 	// This function draws a circle at (x,y) with radius
 	void drawSolidCircle(double x, double y, double radius) {
 		// Fill a Circle
-		mGraphics.fill(new Ellipse2D.Double(x-radius, y-radius, radius*2, radius*2));
+		mEllipse.setFrame(x-radius, y-radius, radius*2, radius*2);
+		mGraphics.fill(mEllipse);
 	}
 
 	// This function draws a polygon
@@ -447,14 +845,14 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	// This function draws text on the screen at (x,y)
 	public void drawText(double x, double y, String s) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.PLAIN, 40));
+		mGraphics.setFont(getFont("Arial", Font.PLAIN, 40));
 		mGraphics.drawString(s, (int)x, (int)y);
 	}
 
 	// This function draws bold text on the screen at (x,y)
 	public void drawBoldText(double x, double y, String s) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.BOLD, 40));
+		mGraphics.setFont(getFont("Arial", Font.BOLD, 40));
 		mGraphics.drawString(s, (int)x, (int)y);
 	}
 
@@ -462,7 +860,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	// with Font (font,size)
 	public void drawText(double x, double y, String s, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.PLAIN, size));
+		mGraphics.setFont(getFont("Arial", Font.PLAIN, size));
 		mGraphics.drawString(s, (int)x, (int)y);
 	}
 
@@ -470,7 +868,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	// with Font (font,size)
 	public void drawBoldText(double x, double y, String s, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font("Arial", Font.BOLD, size));
+		mGraphics.setFont(getFont("Arial", Font.BOLD, size));
 		mGraphics.drawString(s, (int)x, (int)y);
 	}
 
@@ -478,7 +876,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	// with Font (font,size)
 	public void drawText(double x, double y, String s, String font, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font(font, Font.PLAIN, size));
+		mGraphics.setFont(getFont(font, Font.PLAIN, size));
 		mGraphics.drawString(s, (int)x, (int)y);
 	}
 
@@ -486,7 +884,7 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 	// with Font (font,size)
 	public void drawBoldText(double x, double y, String s, String font, int size) {
 		// Draw text on the screen
-		mGraphics.setFont(new Font(font, Font.BOLD, size));
+		mGraphics.setFont(getFont(font, Font.BOLD, size));
 		mGraphics.drawString(s, (int)x, (int)y);
 	}
 
@@ -558,6 +956,43 @@ public abstract class GameEngine implements KeyListener, MouseListener, MouseMot
 		mGraphics.drawImage(image, (int)x, (int)y, (int)w, (int)h, null);
 	}
 
+	// Creates an opaque image in the same pixel format as the window,
+	// so drawing it to the screen is a plain copy
+	public BufferedImage createImage(int width, int height) {
+		// Use the window's configuration if it is showing
+		Component screen = (mCanvas != null) ? mCanvas : mPanel;
+		GraphicsConfiguration config = (screen != null) ? screen.getGraphicsConfiguration() : null;
+		if(config == null) {
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		return config.createCompatibleImage(width, height, Transparency.OPAQUE);
+	}
+
+	// Screen graphics saved while drawing into an image
+	Graphics2D mScreenGraphics;
+
+	// Sends all drawing functions to an image until stopDrawingToImage is called
+	public void startDrawingToImage(BufferedImage image) {
+		// Save the screen graphics
+		mScreenGraphics = mGraphics;
+
+		// Draw into the image with the same settings as the screen
+		mGraphics = image.createGraphics();
+		mGraphics.setRenderingHints(mRenderingHints);
+		mTransforms.push(mGraphics.getTransform());
+	}
+
+	// Sends drawing functions back to the screen
+	public void stopDrawingToImage() {
+		// Release the image graphics
+		mGraphics.dispose();
+		mTransforms.pop();
+
+		// Restore the screen graphics
+		mGraphics = mScreenGraphics;
+		mScreenGraphics = null;
+	}
+
 	//-------------------------------------------------------
 	// Transform Functions
 	//-------------------------------------------------------
@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Looks ahead over the current piece, the preview and the hold slot and picks the
+// placement whose best continuation scores highest with a BoardEvaluator. Every
+// ply scores all placements statically and only the best few are searched deeper,
+// which keeps depth 3 with hold to a few thousand evaluated boards per piece.
+// The first-ply candidates are searched in parallel on a ForkJoin pool.
+public class HeuristicBot extends Bot {
+    private static final int FIRST_PLY_WIDTH = 8; // First-ply candidates searched deeper
+    private static final int INNER_WIDTH = 4;     // Candidates searched deeper on later plies
+    private static final double DEAD = -1e9;      // Score of a position the next piece cannot enter
+
+    private final BoardEvaluator evaluator;
+    private final ForkJoinPool pool; // null searches on the calling thread
+    private final int depth;
+    private final ThreadLocal<Search> searches;
+
+    public HeuristicBot(BoardEvaluator evaluator, ForkJoinPool pool, int depth) {
+        this.evaluator = evaluator;
+        this.pool = pool;
+        this.depth = depth;
+        this.searches = ThreadLocal.withInitial(() -> new Search(depth));
+    }
+
+    @Override
+    protected Plan choose(TetrisSimulation simulation) {
+        Board board = simulation.getBoard();
+        PieceGenerator generator = simulation.getPieceGenerator();
+        int[] preview = new int[generator.getPreviewSize()];
+        generator.peekNextPieces(preview);
+        int[] queue = new int[preview.length + 1];
+        queue[0] = simulation.getCurrentPiece().getPieceType();
+        System.arraycopy(preview, 0, queue, 1, preview.length);
+        Integer heldType = simulation.getHeldPieceType();
+        int held = (heldType != null) ? heldType : -1;
+
+        Search root = searches.get();
+        root.board(0).copyFrom(board);
+        int count = root.expand(0, queue, 0, held, simulation.canHold(),
+                simulation.getCurrentPiece().getState(), 0);
+        if (count == 0) return null;
+        int width = (depth > 1) ? Math.min(FIRST_PLY_WIDTH, count) : 1;
+        root.selectBest(0, width);
+
+        // Search the most promising first moves deeper, one task each
+        List<Branch> branches = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            branches.add(new Branch(board, queue, root.candidates[0][i], root.scores[0][i]));
+        }
+        if (depth > 1) {
+            if (pool != null) {
+                for (Branch branch : branches) pool.execute(branch);
+                for (Branch branch : branches) branch.join();
+            } else {
+                for (Branch branch : branches) branch.search();
+            }
+        }
+
+        Branch best = branches.get(0);
+        for (Branch branch : branches) {
+            if (branch.score > best.score) best = branch;
+        }
+        return new Plan(best.hold, best.placement);
+    }
+
+    // A first-ply move and the best score found below it
+    private final class Branch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final Board board;
+        final int[] queue;
+        final boolean hold;
+        final int placement;
+        final int next, held, lines;
+        double score;
+
+        Branch(Board board, int[] queue, long candidate, double score) {
+            this.board = board;
+            this.queue = queue;
+            this.hold = hold(candidate);
+            this.placement = state(candidate);
+            this.next = next(candidate);
+            this.held = held(candidate);
+            this.lines = lines(candidate);
+            this.score = score;
+        }
+
+        void search() {
+            Search search = searches.get();
+            Board child = search.board(1);
+            child.copyFrom(board);
+            PieceState.lock(child, placement);
+            score = search.value(1, queue, next, held, lines);
+        }
+
+        @Override
+        protected void compute() {
+            search();
+        }
+    }
+
+    // Per-thread scratch: one board and one candidate list per ply
+    private final class Search {
+        private final MoveGenerator moves;
+        private final Board[] boards;
+        private final double[][] scores;
+        private final long[][] candidates;
+        private final int[] counts;
+
+        Search(int depth) {
+            moves = new MoveGenerator(new Board());
+            boards = new Board[depth + 1];
+            scores = new double[depth][];
+            candidates = new long[depth][];
+            counts = new int[depth];
+            for (int ply = 0; ply <= depth; ply++) boards[ply] = new Board();
+            for (int ply = 0; ply < depth; ply++) {
+                scores[ply] = new double[256];
+                candidates[ply] = new long[256];
+            }
+        }
+
+        Board board(int ply) {
+            return boards[ply];
+        }
+
+        // Best score reachable from boards[ply] with the remaining plies
+        double value(int ply, int[] queue, int next, int held, int lines) {
+            if (ply >= depth || next >= queue.length) {
+                return evaluator.evaluate(boards[ply], lines);
+            }
+            int count = expand(ply, queue, next, held, true, -1, lines);
+            if (count == 0) return DEAD;
+            if (ply == depth - 1) {
+                return scores[ply][bestIndex(ply)];
+            }
+
+            int width = Math.min(INNER_WIDTH, count);
+            selectBest(ply, width);
+            double best = DEAD;
+            Board child = boards[ply + 1];
+            for (int i = 0; i < width; i++) {
+                long candidate = candidates[ply][i];
+                child.copyFrom(boards[ply]);
+                PieceState.lock(child, state(candidate));
+                best = Math.max(best, value(ply + 1, queue, next(candidate), held(candidate), lines(candidate)));
+            }
+            return best;
+        }
+
+        // Scores every placement of the next piece (and of the hold option) on boards[ply].
+        // start is the current piece state at the root, or -1 to spawn the piece.
+        int expand(int ply, int[] queue, int next, int held, boolean canHold, int start, int lines) {
+            counts[ply] = 0;
+            int current = queue[next];
+            add(ply, false, (start >= 0) ? start : PieceState.spawn(boards[ply], current), next + 1, held, lines);
+            if (canHold) {
+                if (held < 0) {
+                    if (next + 1 < queue.length) {
+                        add(ply, true, PieceState.spawn(boards[ply], queue[next + 1]), next + 2, current, lines);
+                    }
+                } else if (held != current) {
+                    add(ply, true, PieceState.spawn(boards[ply], held), next + 1, current, lines);
+                }
+            }
+            return counts[ply];
+        }
+
+        private void add(int ply, boolean hold, int start, int next, int held, int lines) {
+            Board board = boards[ply];
+            Board scratch = boards[depth];
+            int found = moves.generate(board, start);
+            for (int i = 0; i < found; i++) {
+                int placement = moves.getPlacement(i);
+                scratch.copyFrom(board);
+                int cleared = lines + PieceState.lock(scratch, placement);
+                int n = counts[ply]++;
+                if (n == scores[ply].length) {
+                    scores[ply] = Arrays.copyOf(scores[ply], n * 2);
+                    candidates[ply] = Arrays.copyOf(candidates[ply], n * 2);
+                }
+                scores[ply][n] = evaluator.evaluate(scratch, cleared);
+                candidates[ply][n] = pack(hold, placement, next, held, cleared);
+            }
+        }
+
+        private int bestIndex(int ply) {
+            int best = 0;
+            for (int i = 1; i < counts[ply]; i++) {
+                if (scores[ply][i] > scores[ply][best]) best = i;
+            }
+            return best;
+        }
+
+        // Moves the best width candidates of a ply to the front, best first
+        void selectBest(int ply, int width) {
+            double[] s = scores[ply];
+            long[] c = candidates[ply];
+            for (int i = 0; i < width; i++) {
+                int best = i;
+                for (int j = i + 1; j < counts[ply]; j++) {
+                    if (s[j] > s[best]) best = j;
+                }
+                double score = s[i]; s[i] = s[best]; s[best] = score;
+                long candidate = c[i]; c[i] = c[best]; c[best] = candidate;
+            }
+        }
+
+    }
+
+    // Candidate layout: bits 0-31 placement, 32 hold, 33-39 next queue index,
+    // 40-47 held type + 1, 48-63 lines cleared so far
+    private static long pack(boolean hold, int placement, int next, int held, int lines) {
+        return (placement & 0xFFFFFFFFL) | (hold ? 1L << 32 : 0) | ((long) next << 33)
+                | ((long) (held + 1) << 40) | ((long) lines << 48);
+    }
+
+    private static int state(long candidate) { return (int) candidate; }
+    private static boolean hold(long candidate) { return ((candidate >>> 32) & 1) != 0; }
+    private static int next(long candidate) { return (int) ((candidate >>> 33) & 0x7F); }
+    private static int held(long candidate) { return (int) ((candidate >>> 40) & 0xFF) - 1; }
+    private static int lines(long candidate) { return (int) (candidate >>> 48); }
+}
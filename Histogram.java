@@ -0,0 +1,97 @@
+import java.io.PrintStream;
+
+// Fixed-bucket histogram for aggregating results over many games. Buckets are
+// either linear (width per bucket) or powers of two for long-tailed values such
+// as score. Values past the last bucket are counted in the last one.
+public class Histogram {
+    private final String name;
+    private final double bucketWidth;
+    private final boolean logScale;
+    private final long[] counts;
+    private long total;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public Histogram(String name, double bucketWidth, int buckets) {
+        this(name, bucketWidth, buckets, false);
+    }
+
+    private Histogram(String name, double bucketWidth, int buckets, boolean logScale) {
+        this.name = name;
+        this.bucketWidth = bucketWidth;
+        this.logScale = logScale;
+        this.counts = new long[buckets];
+    }
+
+    // Histogram whose bucket i holds values in [2^(i-1), 2^i), with bucket 0 for values below 1
+    public static Histogram powersOfTwo(String name) {
+        return new Histogram(name, 1, 40, true);
+    }
+
+    public void add(double value) {
+        counts[bucketOf(value)]++;
+        total++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // Adds every sample of another histogram with the same layout
+    public void merge(Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    private int bucketOf(double value) {
+        int bucket;
+        if (logScale) {
+            bucket = (value < 1) ? 0 : 64 - Long.numberOfLeadingZeros((long) value);
+        } else {
+            bucket = (int) Math.floor(value / bucketWidth);
+        }
+        return Math.max(0, Math.min(counts.length - 1, bucket));
+    }
+
+    private double bucketStart(int bucket) {
+        if (logScale) return (bucket == 0) ? 0 : (1L << (bucket - 1));
+        return bucket * bucketWidth;
+    }
+
+    public long getCount() { return total; }
+    public double getMean() { return (total == 0) ? 0 : sum / total; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+
+    // Approximate percentile (0-100), reported as the start of the bucket it falls in
+    public double getPercentile(double percentile) {
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) return bucketStart(i);
+        }
+        return bucketStart(counts.length - 1);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%s: n=%d mean=%.2f min=%.2f p50~%.2f p90~%.2f p99~%.2f max=%.2f%n",
+                name, total, getMean(), (total == 0) ? 0 : min, getPercentile(50),
+                getPercentile(90), getPercentile(99), (total == 0) ? 0 : max);
+
+        long peak = 1;
+        for (long count : counts) peak = Math.max(peak, count);
+        int first = 0, last = counts.length - 1;
+        while (first < last && counts[first] == 0) first++;
+        while (last > first && counts[last] == 0) last--;
+        for (int i = first; i <= last; i++) {
+            int bar = (int) (40 * counts[i] / peak);
+            out.printf("  %10.2f | %-40s %d%n", bucketStart(i), "#".repeat(bar), counts[i]);
+        }
+    }
+}
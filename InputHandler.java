@@ -1,13 +1,9 @@
 import java.awt.event.KeyEvent;
 
 public class InputHandler {
-    // DAS/ARR (Delayed Auto Shift/Auto Repeat, horizontal movement)
-    private double dasDelay = 0.15;
-    private double arrInterval = 0.05;
-    private double leftHeldTime = 0, rightHeldTime = 0;
-    private boolean leftHeld = false, rightHeld = false;
-
-    private boolean softDropping = false;
+    // Keys are turned into TetrisSimulation input bits; the simulation does the rest
+    private int heldInputs;    // Left/right/soft drop keys currently down
+    private int pressedInputs; // Presses and one-shot actions since the last poll
 
     private TetrisGame game; // Reference to the main game logic
 
@@ -15,33 +11,16 @@ public class InputHandler {
         this.game = game;
     }
 
-    public void update(double dt) {
-        if (game.getGameState().isGameOver() || game.getGameState().isPaused() || game.getGameState().isShowCountdown()) {
-            return;
-        }
-
-        // DAS/ARR for L/R movement
-        if (leftHeld) {
-            leftHeldTime += dt;
-            if (leftHeldTime >= dasDelay) {
-                int repeats = (int)((leftHeldTime - dasDelay) / arrInterval);
-                for (int i=0; i<repeats; i++) game.getCurrentPiece().moveLeft();
-                leftHeldTime = dasDelay + (leftHeldTime - dasDelay) % arrInterval;
-            }
-        }
-        if (rightHeld) {
-            rightHeldTime += dt;
-            if (rightHeldTime >= dasDelay) {
-                int repeats = (int)((rightHeldTime - dasDelay) / arrInterval);
-                for (int i=0; i<repeats; i++) game.getCurrentPiece().moveRight();
-                rightHeldTime = dasDelay + (rightHeldTime - dasDelay) % arrInterval;
-            }
-        }
+    // Returns the input bits for the next simulation step. Presses are latched until
+    // polled, so a key tapped and released between two steps is still seen once.
+    public int pollInputs() {
+        int inputs = heldInputs | pressedInputs;
+        pressedInputs = 0;
+        return inputs;
     }
 
     public void keyPressed(KeyEvent e) {
         GameState gameState = game.getGameState();
-        Piece currentPiece = game.getCurrentPiece();
 
         if (gameState.isGameOver()) {
             if (e.getKeyCode() == KeyEvent.VK_R) {
@@ -93,62 +72,53 @@ public class InputHandler {
 
         switch (e.getKeyCode()) {
             case KeyEvent.VK_LEFT:
-                leftHeld = true;
-                leftHeldTime = 0;
-                if (currentPiece != null) currentPiece.moveLeft();
+                press(TetrisSimulation.INPUT_LEFT);
                 break;
             case KeyEvent.VK_RIGHT:
-                rightHeld = true;
-                rightHeldTime = 0;
-                if (currentPiece != null) currentPiece.moveRight();
+                press(TetrisSimulation.INPUT_RIGHT);
                 break;
             case KeyEvent.VK_DOWN:
-                softDropping = true;
-                if (currentPiece != null && !currentPiece.isLanded()) {
-                    currentPiece.moveDown(); // Move one step immediately
-                    game.resetFallTimer(); // Reset fall timer to reflect soft drop
-                }
+                press(TetrisSimulation.INPUT_SOFT_DROP);
                 break;
             case KeyEvent.VK_SPACE:
-                if (currentPiece != null) game.hardDrop();
+                pressedInputs |= TetrisSimulation.INPUT_HARD_DROP;
                 break;
             case KeyEvent.VK_UP:    // Clockwise rotation
-                game.rotatePiece(true);
+                pressedInputs |= TetrisSimulation.INPUT_ROTATE_CW;
                 break;
             case KeyEvent.VK_Z:     // Counter-clockwise rotation
-                game.rotatePiece(false);
+                pressedInputs |= TetrisSimulation.INPUT_ROTATE_CCW;
                 break;
             case KeyEvent.VK_C:     // Hold piece
-                game.holdPiece();
+                pressedInputs |= TetrisSimulation.INPUT_HOLD;
                 break;
         }
     }
 
+    // Held keys only count as a new press the first time, not on OS key repeat
+    private void press(int input) {
+        if ((heldInputs & input) == 0) {
+            pressedInputs |= input;
+        }
+        heldInputs |= input;
+    }
+
     public void keyReleased(KeyEvent e) {
         switch (e.getKeyCode()) {
             case KeyEvent.VK_LEFT:
-                leftHeld = false;
-                leftHeldTime = 0; // Reset time on release
+                heldInputs &= ~TetrisSimulation.INPUT_LEFT;
                 break;
             case KeyEvent.VK_RIGHT:
-                rightHeld = false;
-                rightHeldTime = 0; // Reset time on release
+                heldInputs &= ~TetrisSimulation.INPUT_RIGHT;
                 break;
             case KeyEvent.VK_DOWN:
-                softDropping = false;
+                heldInputs &= ~TetrisSimulation.INPUT_SOFT_DROP;
                 break;
         }
     }
 
-    public boolean isSoftDropping() {
-        return softDropping;
-    }
-
-    public void resetDAS() {
-        leftHeld = false;
-        rightHeld = false;
-        leftHeldTime = 0;
-        rightHeldTime = 0;
-        softDropping = false;
+    public void reset() {
+        heldInputs = 0;
+        pressedInputs = 0;
     }
 }
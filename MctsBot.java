@@ -0,0 +1,330 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+// Monte Carlo tree search player. The tree covers the pieces that are known
+// (current, preview and hold); below it each playout places a few more pieces,
+// taking the rest of the known queue and then pieces drawn from sampled 7-bags that
+// agree with everything already seen, each at the best of a few random placements.
+// The playout's final board is scored with a BoardEvaluator and squashed to 0..1
+// relative to the starting board. Each child also carries the squashed static score
+// of its own board as a prior, so the search favours plausible moves first and
+// still picks a sensible move when the budget only allows a handful of playouts.
+//
+// Playouts run in parallel on a ForkJoin pool, each worker with its own scratch.
+// Node statistics are updated with atomic operations only: a visit is counted on
+// the way down (which also steers other workers away from the same path) and the
+// reward is added with a CAS on its bits on the way up. The search is anytime:
+// choose() stops at the time budget and plays the most visited first move so far.
+public class MctsBot extends Bot {
+    private static final double EXPLORATION = 0.5;
+    private static final int EXPAND_AFTER = 2;      // Visits before a node gets children
+    private static final int PLAYOUT_PIECES = 2;    // Pieces placed past the tree in each playout
+    private static final int PLAYOUT_CANDIDATES = 3; // Random placements compared per playout piece
+    private static final double REWARD_SCALE = 8.0; // Score difference that moves the reward most
+
+    private final BoardEvaluator evaluator;
+    private final double lineWeight;
+    private final ForkJoinPool pool; // null runs playouts on the calling thread
+    private final long budgetNanos;
+    private final ThreadLocal<Worker> workers;
+    private final AtomicLong seeds;
+
+    // Piece types by absolute position in the game's sequence, -1 when not seen
+    private final int[] history = new int[64];
+    private int lastBase = Integer.MAX_VALUE;
+    private final AtomicLong playouts = new AtomicLong();
+
+    public MctsBot(BoardEvaluator evaluator, ForkJoinPool pool, long budgetMillis, long seed) {
+        this.evaluator = evaluator;
+        this.lineWeight = evaluator.getWeights()[BoardEvaluator.LINES];
+        this.pool = pool;
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.seeds = new AtomicLong(seed);
+        this.workers = ThreadLocal.withInitial(() -> new Worker(seeds.getAndIncrement()));
+        Arrays.fill(history, -1);
+    }
+
+    private static final class Node {
+        private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+        final int placement;  // Resting state locked to reach this node; unused at the root
+        final boolean hold;
+        final int next;       // Queue index of the next piece to place
+        final int held;       // Held type, -1 when the hold slot is empty
+        final int lines;      // Lines cleared since the root
+        final double prior;   // Squashed static score of this node's board
+        final AtomicLong visits = new AtomicLong();
+        final AtomicLong rewardBits = new AtomicLong(); // Sum of rewards as double bits
+        volatile Node[] children;
+
+        Node(int placement, boolean hold, int next, int held, int lines, double prior) {
+            this.placement = placement;
+            this.hold = hold;
+            this.next = next;
+            this.held = held;
+            this.lines = lines;
+            this.prior = prior;
+        }
+
+        void addReward(double reward) {
+            long current, updated;
+            do {
+                current = rewardBits.get();
+                updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + reward);
+            } while (!rewardBits.compareAndSet(current, updated));
+        }
+
+        // Mean playout reward, or the prior before the first visit. Playouts still in
+        // flight count as zero, which keeps other workers off the same path meanwhile.
+        double meanReward() {
+            long n = visits.get();
+            return (n == 0) ? prior : Double.longBitsToDouble(rewardBits.get()) / n;
+        }
+    }
+
+    // What every worker needs to know about the position being searched
+    private static final class Root {
+        final Board board;
+        final int[] queue;
+        final int base;         // Absolute position before the first preview
+        final int firstState;   // Current piece as it is now, possibly already moved
+        final boolean canHold;
+        final double score;     // Evaluation of the starting board
+        final Node node;
+
+        Root(Board board, int[] queue, int base, int firstState, boolean canHold, double score, int held) {
+            this.board = board;
+            this.queue = queue;
+            this.base = base;
+            this.firstState = firstState;
+            this.canHold = canHold;
+            this.score = score;
+            this.node = new Node(-1, false, 0, held, 0, 0.5);
+        }
+    }
+
+    @Override
+    protected Plan choose(TetrisSimulation simulation) {
+        long deadline = System.nanoTime() + budgetNanos;
+        PieceGenerator generator = simulation.getPieceGenerator();
+        int[] queue = new int[generator.getPreviewSize() + 1];
+        queue[0] = simulation.getCurrentPiece().getPieceType();
+        for (int i = 1; i < queue.length; i++) queue[i] = generator.peek(i - 1);
+        Integer heldType = simulation.getHeldPieceType();
+        int held = (heldType != null) ? heldType : -1;
+        // The previews start at the generator's dealt count, and a freshly spawned
+        // piece was dealt just before them. Once hold has been used on this piece the
+        // current one may have come back out of hold from further back, with the
+        // piece now in hold in that slot, so it is only recorded before any hold; the
+        // slot was already filled while it was a preview.
+        int dealt = (int) generator.getDealt();
+        int base = dealt - 1;
+        if (base < lastBase) Arrays.fill(history, -1); // A new game
+        lastBase = base;
+        if (simulation.canHold()) history[base & (history.length - 1)] = queue[0];
+        for (int i = 1; i < queue.length; i++) history[(dealt + i - 1) & (history.length - 1)] = queue[i];
+
+        Board board = new Board(simulation.getBoard());
+        Root root = new Root(board, queue, base, simulation.getCurrentPiece().getState(),
+                simulation.canHold(), evaluator.evaluate(board, 0), held);
+        int[] known = history.clone();
+
+        if (pool == null) {
+            search(root, known, deadline);
+        } else {
+            int parallelism = pool.getParallelism();
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                tasks.add(pool.submit(() -> search(root, known, deadline)));
+            }
+            for (ForkJoinTask<?> task : tasks) task.join();
+        }
+
+        Node[] children = root.node.children;
+        if (children == null || children.length == 0) return null;
+        Node best = children[0];
+        for (Node child : children) {
+            long visits = child.visits.get(), bestVisits = best.visits.get();
+            if (visits > bestVisits || (visits == bestVisits && child.meanReward() > best.meanReward())) {
+                best = child;
+            }
+        }
+        return new Plan(best.hold, best.placement);
+    }
+
+    // Runs playouts until the deadline; always completes at least one
+    private void search(Root root, int[] known, long deadline) {
+        Worker worker = workers.get();
+        long done = 0;
+        do {
+            worker.playout(root, known);
+            done++;
+        } while (System.nanoTime() < deadline);
+        playouts.addAndGet(done);
+    }
+
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    private final class Worker {
+        final SplittableRandom random;
+        final MoveGenerator moves = new MoveGenerator(new Board());
+        final Board board = new Board();
+        final Board scratch = new Board();
+        final Node[] path = new Node[16];
+        final int[] future = new int[PLAYOUT_PIECES + 16];
+        final int[] bag = new int[7];
+
+        Worker(long seed) {
+            random = new SplittableRandom(seed);
+        }
+
+        void playout(Root root, int[] known) {
+            board.copyFrom(root.board);
+            Node node = root.node;
+            node.visits.incrementAndGet();
+            int depth = 0;
+
+            // Walk down the tree, expanding nodes that have been visited enough
+            while (true) {
+                Node[] children = node.children;
+                if (children == null) {
+                    if (node != root.node && node.visits.get() < EXPAND_AFTER) break;
+                    children = expand(root, node);
+                }
+                if (children.length == 0) break;
+                node = select(node, children);
+                node.visits.incrementAndGet();
+                PieceState.lock(board, node.placement);
+                path[depth++] = node;
+                if (depth == path.length) break;
+            }
+
+            double reward = (node.children != null && node.children.length == 0)
+                    ? 0 // The next piece cannot enter: a lost game
+                    : rollout(root, known, node);
+            root.node.addReward(reward);
+            for (int i = 0; i < depth; i++) path[i].addReward(reward);
+        }
+
+        // Children for every placement of the next piece, with and without hold.
+        // Only one worker's array is installed; the others adopt it.
+        Node[] expand(Root root, Node node) {
+            List<Node> children = new ArrayList<>();
+            int next = node.next;
+            if (next < root.queue.length) {
+                boolean canHold = (node != root.node) || root.canHold;
+                int current = root.queue[next];
+                int start = (node == root.node) ? root.firstState : PieceState.spawn(board, current);
+                addChildren(children, root, node, start, false, next + 1, node.held);
+                if (canHold) {
+                    if (node.held < 0) {
+                        if (next + 1 < root.queue.length) {
+                            addChildren(children, root, node, PieceState.spawn(board, root.queue[next + 1]),
+                                    true, next + 2, current);
+                        }
+                    } else if (node.held != current) {
+                        addChildren(children, root, node, PieceState.spawn(board, node.held), true, next + 1, current);
+                    }
+                }
+            }
+            Node[] created = children.toArray(new Node[0]);
+            if (Node.CHILDREN.compareAndSet(node, null, created)) return created;
+            return node.children;
+        }
+
+        private void addChildren(List<Node> children, Root root, Node parent, int start, boolean hold,
+                                 int next, int held) {
+            int found = moves.generate(board, start);
+            for (int i = 0; i < found; i++) {
+                int placement = moves.getPlacement(i);
+                scratch.copyFrom(board);
+                int lines = parent.lines + PieceState.lock(scratch, placement);
+                double prior = squash(root, evaluator.evaluate(scratch, 0) + lineWeight * lines);
+                children.add(new Node(placement, hold, next, held, lines, prior));
+            }
+        }
+
+        // UCT with a progressive bias towards the prior that fades as visits add up
+        Node select(Node parent, Node[] children) {
+            double logParent = Math.log(Math.max(1, parent.visits.get()));
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                long n = child.visits.get();
+                double value = child.meanReward() + EXPLORATION * Math.sqrt(logParent / (n + 1))
+                        + child.prior / (n + 1);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        // Plays the rest of the known queue and a few sampled pieces from the node's board
+        double rollout(Root root, int[] known, Node node) {
+            int pieces = sampleFuture(root, known, node.next);
+            int lines = node.lines;
+            for (int p = 0; p < pieces; p++) {
+                int found = moves.generate(board, PieceState.spawn(board, future[p]));
+                if (found == 0) return 0;
+                int best = -1;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int c = 0; c < PLAYOUT_CANDIDATES; c++) {
+                    int placement = moves.getPlacement(random.nextInt(found));
+                    scratch.copyFrom(board);
+                    int cleared = PieceState.lock(scratch, placement);
+                    double score = evaluator.evaluate(scratch, cleared);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = placement;
+                    }
+                }
+                lines += PieceState.lock(board, best);
+            }
+            return squash(root, evaluator.evaluate(board, 0) + lineWeight * lines);
+        }
+
+        private double squash(Root root, double score) {
+            return 1 / (1 + Math.exp(-(score - root.score) / REWARD_SCALE));
+        }
+
+        // Fills future with the next PLAYOUT_PIECES pieces from queue position next:
+        // known ones first, then draws from the bags they belong to
+        int sampleFuture(Root root, int[] known, int next) {
+            int wanted = PLAYOUT_PIECES;
+            int count = 0;
+            for (int i = next; i < root.queue.length && count < wanted; i++) future[count++] = root.queue[i];
+            int first = root.base + root.queue.length; // First unseen absolute position
+            int bagStart = first - (first % 7);
+            while (count < wanted) {
+                // Pieces of this bag not seen yet, in random order
+                int remaining = 0;
+                for (int type = 0; type < 7; type++) {
+                    boolean seen = false;
+                    for (int i = bagStart; i < first; i++) {
+                        if (known[i & (known.length - 1)] == type) seen = true;
+                    }
+                    if (!seen) bag[remaining++] = type;
+                }
+                for (int i = remaining - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = bag[i]; bag[i] = bag[j]; bag[j] = swap;
+                }
+                for (int i = 0; i < remaining && count < wanted; i++) future[count++] = bag[i];
+                bagStart += 7;
+                first = bagStart;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+// Finds every distinct resting place the current piece can reach from spawn,
+// including tucks and spins, by a breadth-first search over PieceState values.
+// Each placement comes with the shortest sequence of moves that reaches it.
+//
+// One generator is reused for many searches: all tables are allocated up front
+// and visited states are marked with a generation stamp, so generate() does not
+// allocate and does not need to clear anything between calls.
+public final class MoveGenerator {
+    // Moves making up a path
+    public static final byte LEFT = 0;
+    public static final byte RIGHT = 1;
+    public static final byte ROTATE_CW = 2;
+    public static final byte ROTATE_CCW = 3;
+    public static final byte DOWN = 4;  // One row down, or to the stack's open-air band (see apply)
+    public static final byte SONIC = 5; // Straight down onto the stack
+    private static final int MOVE_COUNT = 6;
+
+    private static final int PAD = 2; // Block offsets reach at most two cells past the anchor
+
+    // A piece this many rows or more above the stack cannot touch it with one move: a
+    // rotation lowers the bottom block by at most two rows and a kick by two more
+    private static final int OPEN_AIR_MARGIN = 5;
+
+    private final int width;
+    private final int xSpan, ySpan;
+
+    // Search state per dense state index, valid where seen[index] == generation
+    private final int[] seen;
+    private final int[] parent;
+    private final byte[] moveIn;
+    private final int[] queue;
+    private int generation;
+
+    // Placements found by the last search, in order of path length
+    private final int[] placements;
+    private final int[] placementIndex;
+    private final long[] placementKeys;
+    private int placementCount;
+
+    // Open-addressing set of cell keys, valid where keyStamp[slot] == generation
+    private final long[] keySlots;
+    private final int[] keyStamp;
+    private final int keyMask;
+
+    public MoveGenerator(Board board) {
+        width = board.WIDTH;
+        xSpan = board.WIDTH + 2 * PAD;
+        ySpan = board.TOTAL_HEIGHT + 2 * PAD;
+        int states = 4 * xSpan * ySpan;
+        seen = new int[states];
+        parent = new int[states];
+        moveIn = new byte[states];
+        queue = new int[states];
+        placements = new int[states];
+        placementIndex = new int[states];
+        placementKeys = new long[states];
+        int slots = Integer.highestOneBit(states) << 2;
+        keySlots = new long[slots];
+        keyStamp = new int[slots];
+        keyMask = slots - 1;
+    }
+
+    // Searches from the given piece state and returns the number of placements found.
+    // Returns 0 if the piece does not fit where it starts.
+    public int generate(Board board, int start) {
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(keyStamp, 0);
+            generation = 1;
+        }
+        placementCount = 0;
+        if (!PieceState.fits(board, start)) return 0;
+
+        int startIndex = index(start);
+        seen[startIndex] = generation;
+        parent[startIndex] = -1;
+        queue[0] = start;
+        int head = 0, tail = 1;
+
+        while (head < tail) {
+            int state = queue[head++];
+            int stateIndex = index(state);
+            if (PieceState.isLanded(board, state)) {
+                addPlacement(state, stateIndex);
+            }
+            for (byte move = 0; move < MOVE_COUNT; move++) {
+                int next = apply(board, state, move);
+                if (next == PieceState.NONE) continue;
+                int nextIndex = index(next);
+                if (seen[nextIndex] == generation) continue;
+                seen[nextIndex] = generation;
+                parent[nextIndex] = stateIndex;
+                moveIn[nextIndex] = move;
+                queue[tail++] = next;
+            }
+        }
+        return placementCount;
+    }
+
+    // Applies one move, or returns PieceState.NONE if it is blocked or does nothing.
+    // While the piece is in open air well above the stack, DOWN drops it straight to the
+    // lowest open-air row: every row up there behaves the same, so stepping through them
+    // one at a time would only multiply the states searched.
+    public static int apply(Board board, int state, byte move) {
+        switch (move) {
+            case LEFT: return PieceState.move(board, state, -1, 0);
+            case RIGHT: return PieceState.move(board, state, 1, 0);
+            case ROTATE_CW: return PieceState.rotate(board, state, 1);
+            case ROTATE_CCW: return PieceState.rotate(board, state, 3);
+            case DOWN: {
+                int bottom = PieceState.y(state) + lowestBlock(PieceState.shape(state));
+                int lowestOpenAir = board.getTopRow() - OPEN_AIR_MARGIN;
+                return PieceState.move(board, state, 0, Math.max(1, lowestOpenAir - bottom));
+            }
+            case SONIC: {
+                int dropped = PieceState.drop(board, state);
+                return (dropped == state) ? PieceState.NONE : dropped;
+            }
+            default: throw new IllegalArgumentException("Unknown move " + move);
+        }
+    }
+
+    private static int lowestBlock(int[][] shape) {
+        int lowest = Integer.MIN_VALUE;
+        for (int[] block : shape) lowest = Math.max(lowest, block[1]);
+        return lowest;
+    }
+
+    private void addPlacement(int state, int stateIndex) {
+        long key = cellKey(state);
+        int slot = (int) (mix(key) & keyMask);
+        while (keyStamp[slot] == generation) {
+            if (keySlots[slot] == key) return; // Same cells already reached by a shorter path
+            slot = (slot + 1) & keyMask;
+        }
+        keyStamp[slot] = generation;
+        keySlots[slot] = key;
+        placements[placementCount] = state;
+        placementIndex[placementCount] = stateIndex;
+        placementKeys[placementCount] = key;
+        placementCount++;
+    }
+
+    // Identifies the set of cells a state covers: the top row above a 4-row cell mask.
+    // States with the same key lock into the same cells.
+    public long cellKey(int state) {
+        int[][] shape = PieceState.shape(state);
+        int x = PieceState.x(state);
+        int y = PieceState.y(state);
+        int top = Integer.MAX_VALUE;
+        for (int[] block : shape) top = Math.min(top, y + block[1]);
+        long mask = 0;
+        for (int[] block : shape) {
+            mask |= 1L << ((y + block[1] - top) * width + x + block[0]);
+        }
+        return ((long) top << 48) | mask;
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    // Dense index of a state; type is fixed for a search so it is left out
+    private int index(int state) {
+        int x = PieceState.x(state) + PAD;
+        int y = PieceState.y(state) + PAD;
+        return (PieceState.rotation(state) * xSpan + x) * ySpan + y;
+    }
+
+    public int getPlacementCount() {
+        return placementCount;
+    }
+
+    // Resting piece state of placement i; lock it with PieceState.lock
+    public int getPlacement(int i) {
+        return placements[i];
+    }
+
+    // Key identifying the cells placement i covers, equal for equal cell sets
+    public long getCellKey(int i) {
+        return placementKeys[i];
+    }
+
+    // Writes the shortest moves from the start to placement i into out and returns
+    // how many there are. A final SONIC is left out because the hard drop that locks
+    // the piece does the same thing.
+    public int getPath(int i, byte[] out) {
+        int length = getPathLength(i);
+        int index = placementIndex[i];
+        if (length > 0 && moveIn[index] == SONIC) {
+            index = parent[index];
+            length--;
+        }
+        for (int n = length - 1; n >= 0; n--) {
+            out[n] = moveIn[index];
+            index = parent[index];
+        }
+        return length;
+    }
+
+    // Number of moves on the shortest path to placement i, including a final SONIC
+    public int getPathLength(int i) {
+        int length = 0;
+        for (int index = placementIndex[i]; parent[index] >= 0; index = parent[index]) {
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,172 @@
+// Counts every sequence of placements reachable to a given depth, the way chess
+// engines validate move generators with perft. Each ply locks one placement from
+// MoveGenerator onto a scratch copy of the board, clearing lines as the game would.
+// With hold enabled a ply may also play the held piece (or the next one, when
+// nothing is held yet) and keep the current piece in hold.
+//
+// The counts are checked against REFERENCE, so a change to Board, Piece or
+// MoveGenerator that alters what is reachable shows up as a failure here, and the
+// nodes per second track the speed of those hot paths.
+//
+// Usage: java Perft [maxDepth] [--print]
+//   --print  prints the counts as REFERENCE rows instead of checking them
+public class Perft {
+    private static final int NO_HOLD = -1;
+
+    // Named start positions, bottom row last; '#' is a filled cell
+    private static final String[][] POSITIONS = {
+        {"empty"},
+        {"mid-game",
+            "..........",
+            "#.........",
+            "##...#....",
+            "###..##.##",
+            "####.#####",
+            "##.#######"},
+        {"t-slot",
+            "..........",
+            "###.......",
+            "##...#####",
+            "###.######",
+            "####.#####"},
+    };
+
+    private static final long SEED = 20240601L;
+
+    // {position, depth, hold (0/1), expected nodes}, produced with --print
+    private static final long[][] REFERENCE = {
+        {0, 1, 0, 34}, {0, 2, 0, 591}, {0, 3, 0, 10622},
+        {0, 1, 1, 51}, {0, 2, 1, 2082}, {0, 3, 1, 116978},
+        {1, 1, 0, 34}, {1, 2, 0, 604}, {1, 3, 0, 10724},
+        {1, 1, 1, 51}, {1, 2, 1, 2100}, {1, 3, 1, 118736},
+        {2, 1, 0, 37}, {2, 2, 0, 672}, {2, 3, 0, 11997},
+        {2, 1, 1, 55}, {2, 2, 1, 2301}, {2, 3, 1, 130596},
+    };
+
+    private final int[] queue;
+    private final Board[] boards;               // boards[ply] is the position before that ply
+    private final MoveGenerator[] generators;   // One per ply, since results are read while recursing
+    private long generateCalls;
+
+    public Perft(Board start, int[] queue, int maxDepth) {
+        this.queue = queue;
+        boards = new Board[maxDepth + 1];
+        generators = new MoveGenerator[maxDepth];
+        boards[0] = new Board(start);
+        for (int ply = 0; ply < maxDepth; ply++) {
+            boards[ply + 1] = new Board(start);
+            generators[ply] = new MoveGenerator(start);
+        }
+    }
+
+    // Number of placement sequences of the given length
+    public long count(int depth, boolean hold) {
+        return hold ? countWithHold(0, depth, 0, NO_HOLD) : count(0, depth, 0);
+    }
+
+    private long count(int ply, int depth, int next) {
+        return place(ply, depth, queue[next], next + 1, NO_HOLD, false);
+    }
+
+    private long countWithHold(int ply, int depth, int next, int held) {
+        int current = queue[next];
+        long nodes = place(ply, depth, current, next + 1, held, true);
+        if (held == NO_HOLD) {
+            nodes += place(ply, depth, queue[next + 1], next + 2, current, true);
+        } else if (held != current) { // Swapping identical pieces reaches the same placements
+            nodes += place(ply, depth, held, next + 1, current, true);
+        }
+        return nodes;
+    }
+
+    // Plays every placement of type on boards[ply] and counts what follows it
+    private long place(int ply, int depth, int type, int next, int held, boolean hold) {
+        Board board = boards[ply];
+        MoveGenerator generator = generators[ply];
+        int placements = generator.generate(board, PieceState.spawn(board, type));
+        generateCalls++;
+        if (depth == 1) return placements;
+
+        long nodes = 0;
+        Board child = boards[ply + 1];
+        for (int i = 0; i < placements; i++) {
+            child.copyFrom(board);
+            PieceState.lock(child, generator.getPlacement(i));
+            nodes += hold ? countWithHold(ply + 1, depth - 1, next, held) : count(ply + 1, depth - 1, next);
+        }
+        return nodes;
+    }
+
+    public long getGenerateCalls() {
+        return generateCalls;
+    }
+
+    static Board parse(String[] position) {
+        Board board = new Board();
+        int rows = position.length - 1;
+        for (int r = 0; r < rows; r++) {
+            String row = position[1 + r];
+            int y = board.TOTAL_HEIGHT - rows + r;
+            for (int x = 0; x < board.WIDTH; x++) {
+                if (row.charAt(x) == '#') board.placePiece(x, y, 8);
+            }
+        }
+        return board;
+    }
+
+    // The first count pieces dealt by a generator with the given seed
+    static int[] pieceQueue(long seed, int count) {
+        PieceGenerator generator = new PieceGenerator(seed);
+        int[] queue = new int[count];
+        for (int i = 0; i < count; i++) {
+            queue[i] = generator.getNextPiece();
+        }
+        return queue;
+    }
+
+    private static long expected(int position, int depth, boolean hold) {
+        for (long[] row : REFERENCE) {
+            if (row[0] == position && row[1] == depth && (row[2] == 1) == hold) return row[3];
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) {
+        int maxDepth = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+        boolean print = args.length > 1 && args[1].equals("--print");
+        int[] queue = pieceQueue(SEED, 2 * maxDepth);
+
+        int failures = 0;
+        long totalNodes = 0, totalCalls = 0, totalNanos = 0;
+        for (int p = 0; p < POSITIONS.length; p++) {
+            Board board = parse(POSITIONS[p]);
+            for (int h = 0; h <= 1; h++) {
+                boolean hold = h == 1;
+                for (int depth = 1; depth <= maxDepth; depth++) {
+                    Perft perft = new Perft(board, queue, depth);
+                    long start = System.nanoTime();
+                    long nodes = perft.count(depth, hold);
+                    long nanos = System.nanoTime() - start;
+                    totalNodes += nodes;
+                    totalCalls += perft.getGenerateCalls();
+                    totalNanos += nanos;
+
+                    if (print) {
+                        System.out.printf("{%d, %d, %d, %d},%n", p, depth, h, nodes);
+                        continue;
+                    }
+                    long want = expected(p, depth, hold);
+                    String verdict = (want < 0) ? "no reference" : (want == nodes) ? "ok" : "FAIL expected " + want;
+                    if (want >= 0 && want != nodes) failures++;
+                    System.out.printf("%-9s depth %d %-7s %12d nodes %10.0f nodes/s  %s%n",
+                            POSITIONS[p][0], depth, hold ? "hold" : "no-hold", nodes,
+                            nodes / Math.max(nanos / 1e9, 1e-9), verdict);
+                }
+            }
+        }
+        System.out.printf("total %d nodes, %d searches in %.2fs: %.0f nodes/s, %.1f us/search%n",
+                totalNodes, totalCalls, totalNanos / 1e9, totalNodes / (totalNanos / 1e9),
+                totalNanos / 1e3 / totalCalls);
+        if (failures > 0) System.exit(1);
+    }
+}
@@ -4,9 +4,10 @@ public class Piece {
     private int pieceX;
     private int pieceY;
     private int pieceColor;
+    private int rotation; // 0 = spawn, 1 = clockwise, 2 = upside down, 3 = counter-clockwise
     private int[][] activeShape;
     private Board board;
-    private static PieceGenerator pieceGenerator;
+    private PieceGenerator pieceGenerator;
 
     // Define the shapes of all tetriminoes (0=I, 1=J, 2=L, 3=O, 4=S, 5=T, 6=Z)
     public static final int[][][] SHAPES = {
@@ -19,13 +20,82 @@ public class Piece {
             {{-1, 0}, {0, 0}, {0, 1}, {1, 1}}  // Z
     };
 
+    // All four orientations of every shape, indexed [shape][rotation], built once from SHAPES.
+    // Pieces point their activeShape straight at these rows, so they must never be written to.
+    public static final int[][][][] ROTATIONS = buildRotations();
+
+    // Super Rotation System wall kicks, as (x, y) offsets with y pointing down.
+    // Indexed [orientation rotated from][test]; the first test is always no kick.
+    private static final int[][][] JLSTZ_KICKS_CW = {
+            {{0, 0}, {-1, 0}, {-1, -1}, {0, 2}, {-1, 2}},  // 0 -> R
+            {{0, 0}, {1, 0}, {1, 1}, {0, -2}, {1, -2}},    // R -> 2
+            {{0, 0}, {1, 0}, {1, -1}, {0, 2}, {1, 2}},     // 2 -> L
+            {{0, 0}, {-1, 0}, {-1, 1}, {0, -2}, {-1, -2}}  // L -> 0
+    };
+    private static final int[][][] JLSTZ_KICKS_CCW = {
+            {{0, 0}, {1, 0}, {1, -1}, {0, 2}, {1, 2}},     // 0 -> L
+            {{0, 0}, {1, 0}, {1, 1}, {0, -2}, {1, -2}},    // R -> 0
+            {{0, 0}, {-1, 0}, {-1, -1}, {0, 2}, {-1, 2}},  // 2 -> R
+            {{0, 0}, {-1, 0}, {-1, 1}, {0, -2}, {-1, -2}}  // L -> 2
+    };
+    private static final int[][][] I_KICKS_CW = {
+            {{0, 0}, {-2, 0}, {1, 0}, {-2, 1}, {1, -2}},   // 0 -> R
+            {{0, 0}, {-1, 0}, {2, 0}, {-1, -2}, {2, 1}},   // R -> 2
+            {{0, 0}, {2, 0}, {-1, 0}, {2, -1}, {-1, 2}},   // 2 -> L
+            {{0, 0}, {1, 0}, {-2, 0}, {1, 2}, {-2, -1}}    // L -> 0
+    };
+    private static final int[][][] I_KICKS_CCW = {
+            {{0, 0}, {-1, 0}, {2, 0}, {-1, -2}, {2, 1}},   // 0 -> L
+            {{0, 0}, {2, 0}, {-1, 0}, {2, -1}, {-1, 2}},   // R -> 0
+            {{0, 0}, {1, 0}, {-2, 0}, {1, 2}, {-2, -1}},   // 2 -> R
+            {{0, 0}, {-2, 0}, {1, 0}, {-2, 1}, {1, -2}}    // L -> 2
+    };
+
+    // Kick offsets to try, in order, when turning shape from rotation by turn (1 = clockwise, 3 = counter-clockwise)
+    static int[][] getKicks(int shapeId, int rotation, int turn) {
+        if (shapeId == 0) {
+            return (turn == 1) ? I_KICKS_CW[rotation] : I_KICKS_CCW[rotation];
+        }
+        return (turn == 1) ? JLSTZ_KICKS_CW[rotation] : JLSTZ_KICKS_CCW[rotation];
+    }
+
+    private static int[][][][] buildRotations() {
+        int[][][][] rotations = new int[SHAPES.length][4][][];
+        for (int type = 0; type < SHAPES.length; type++) {
+            // Rotation centre in doubled coordinates: the I piece turns about the middle of
+            // its 4x4 box, J/L/S/T/Z about the middle cell of their lower row, O not at all
+            int pivotX2 = (type == 0) ? 1 : 0;
+            int pivotY2 = (type == 0) ? 1 : 2;
+            rotations[type][0] = SHAPES[type];
+            for (int r = 1; r < 4; r++) {
+                int[][] previous = rotations[type][r - 1];
+                int[][] shape = new int[4][2];
+                for (int i = 0; i < 4; i++) {
+                    if (type == 3) {
+                        shape[i][0] = previous[i][0];
+                        shape[i][1] = previous[i][1];
+                    } else {
+                        // Rotate clockwise (y points down): (x, y) -> (-y, x) about the pivot
+                        shape[i][0] = (pivotX2 + pivotY2 - 2 * previous[i][1]) / 2;
+                        shape[i][1] = (pivotY2 - pivotX2 + 2 * previous[i][0]) / 2;
+                    }
+                }
+                rotations[type][r] = shape;
+            }
+        }
+        return rotations;
+    }
+
     // Constructor
-    public Piece(Board board) {
+    public Piece(Board board, PieceGenerator pieceGenerator) {
         this.board = board;
-        this.activeShape = new int[4][2];
-        if (pieceGenerator == null) {
-            pieceGenerator = new PieceGenerator();
-        }
+        this.pieceGenerator = pieceGenerator;
+        this.activeShape = ROTATIONS[0][0];
+    }
+
+    // Convenience constructor with a randomly seeded generator of its own
+    public Piece(Board board) {
+        this(board, new PieceGenerator());
     }
 
     public void spawnNewPiece() {
@@ -35,11 +105,9 @@ public class Piece {
         pieceX = (board.WIDTH / 2) - 1; // Centered, but 1 block left of center
         pieceColor = shapeId + 1;
 
-        // Copy the shape from SHAPES array
-        for (int i = 0; i < 4; i++) {
-            activeShape[i][0] = SHAPES[shapeId][i][0];
-            activeShape[i][1] = SHAPES[shapeId][i][1];
-        }
+        // Start in the spawn orientation
+        rotation = 0;
+        activeShape = ROTATIONS[shapeId][0];
 
         // Special case: I piece spawns one row lower
         if (shapeId == 0) { // I piece
@@ -54,11 +122,9 @@ public class Piece {
         pieceX = (board.WIDTH / 2) - 1; // Centered
         pieceColor = shapeId + 1;
 
-        // Copy the shape from SHAPES array
-        for (int i = 0; i < 4; i++) {
-            activeShape[i][0] = SHAPES[shapeId][i][0];
-            activeShape[i][1] = SHAPES[shapeId][i][1];
-        }
+        // Start in the spawn orientation
+        rotation = 0;
+        activeShape = ROTATIONS[shapeId][0];
 
         // Special case: I piece spawns one row lower
         if (shapeId == 0) {
@@ -105,26 +171,11 @@ public class Piece {
     }
 
     private boolean canMove(int dx, int dy) {
-        for (int[] block : activeShape) {
-            int newX = pieceX + block[0] + dx;
-            int newY = pieceY + block[1] + dy;
-
-            if (!board.isWithinBounds(newX, newY) || board.isOccupied(newX, newY)) {
-                return false;
-            }
-        }
-        return true;
+        return !board.collides(activeShape, pieceX + dx, pieceY + dy);
     }
 
     private boolean isValidPosition(int[][] shape, int newPieceX, int newPieceY) {
-        for (int[] block : shape) {
-            int x = newPieceX + block[0];
-            int y = newPieceY + block[1];
-            if (!board.isWithinBounds(x, y) || board.isOccupied(x,y)) {
-                return false;
-            }
-        }
-        return true;
+        return !board.collides(shape, newPieceX, newPieceY);
     }
 
     public void lockPiece() {
@@ -133,21 +184,36 @@ public class Piece {
         }
     }
 
-    public int[][] getGhostCoordinates() {
-        int ghostY = pieceY;
-        while (true) {
-            boolean willLand = false;
-            for (int[] block : activeShape) {
-                int x = pieceX + block[0];
-                int y = ghostY + block[1] + 1;
-                if (!board.isWithinBounds(x, y) || board.isOccupied(x, y)) {
-                    willLand = true;
-                    break;
-                }
-            }
-            if (willLand) break;
-            ghostY++;
+    // Topmost board row covered by the piece
+    public int getTopRow() {
+        int top = pieceY + activeShape[0][1];
+        for (int[] block : activeShape) {
+            top = Math.min(top, pieceY + block[1]);
+        }
+        return top;
+    }
+
+    // Bottommost board row covered by the piece
+    public int getBottomRow() {
+        int bottom = pieceY + activeShape[0][1];
+        for (int[] block : activeShape) {
+            bottom = Math.max(bottom, pieceY + block[1]);
         }
+        return bottom;
+    }
+
+    // Drops the piece straight down onto the stack
+    public void dropToBottom() {
+        pieceY += board.dropDistance(activeShape, pieceX, pieceY);
+    }
+
+    // Row the piece would land on if dropped now
+    public int getGhostY() {
+        return pieceY + board.dropDistance(activeShape, pieceX, pieceY);
+    }
+
+    public int[][] getGhostCoordinates() {
+        int ghostY = getGhostY();
 
         int[][] ghostBlocks = new int[4][2];
         for (int i = 0; i < 4; i++) {
@@ -165,82 +231,48 @@ public class Piece {
     public void setX(int x) { this.pieceX = x; }
     public int getColor() { return pieceColor; }
     public int[][] getShape() { return activeShape; }
+    public int getRotation() { return rotation; }
+
+    // Packs the piece into a PieceState descriptor
+    public int getState() {
+        return PieceState.pack(pieceColor - 1, rotation, pieceX, pieceY);
+    }
+
+    // Moves the piece to the position and orientation held in a PieceState descriptor
+    public void setState(int state) {
+        pieceColor = PieceState.type(state) + 1;
+        rotation = PieceState.rotation(state);
+        pieceX = PieceState.x(state);
+        pieceY = PieceState.y(state);
+        activeShape = ROTATIONS[pieceColor - 1][rotation];
+    }
     public PieceGenerator getPieceGenerator() {
         return pieceGenerator;
     }
 
     public boolean rotateClockwise() {
-        int shapeId = pieceColor - 1;
-        if (shapeId == 3) return false; // O piece does not rotate
-
-        int[][] candidate = new int[4][2];
-        // Use second block as pivot point
-        int pivotRelX = activeShape[1][0];
-        int pivotRelY = activeShape[1][1];
-
-        for (int i = 0; i < 4; i++) {
-            int currentRelX = activeShape[i][0];
-            int currentRelY = activeShape[i][1];
-
-            // Translate to pivot's coordinate space
-            int dx = currentRelX - pivotRelX;
-            int dy = currentRelY - pivotRelY;
-
-            // Rotate clockwise: (x, y) -> (-y, x)
-            int newRelDx = -dy;
-            int newRelDy = dx;
-
-            // Translate back
-            candidate[i][0] = pivotRelX + newRelDx;
-            candidate[i][1] = pivotRelY + newRelDy;
-        }
-
-        // Check if rotation is valid
-        if (isValidPosition(candidate, pieceX, pieceY)) {
-            // Copy rotated position to activeShape
-            for (int i = 0; i < 4; i++) {
-                activeShape[i][0] = candidate[i][0];
-                activeShape[i][1] = candidate[i][1];
-            }
-            return true;
-        }
-        return false;
+        return rotate(1);
     }
 
     public boolean rotateCounterClockwise() {
+        return rotate(3);
+    }
+
+    // Turns the piece by the given number of quarter turns clockwise, trying each SRS kick in order
+    private boolean rotate(int turn) {
         int shapeId = pieceColor - 1;
         if (shapeId == 3) return false; // O piece does not rotate
 
-        int[][] candidate = new int[4][2];
-        // Use second block as pivot point
-        int pivotRelX = activeShape[1][0];
-        int pivotRelY = activeShape[1][1];
-
-        for (int i = 0; i < 4; i++) {
-            int currentRelX = activeShape[i][0];
-            int currentRelY = activeShape[i][1];
-
-            // Translate to pivot's coordinate space
-            int dx = currentRelX - pivotRelX;
-            int dy = currentRelY - pivotRelY;
-
-            // Rotate counter-clockwise: (x, y) -> (y, -x)
-            int newRelDx = dy;
-            int newRelDy = -dx;
-
-            // Translate back
-            candidate[i][0] = pivotRelX + newRelDx;
-            candidate[i][1] = pivotRelY + newRelDy;
-        }
-
-        // Check if rotation is valid
-        if (isValidPosition(candidate, pieceX, pieceY)) {
-            // Copy rotated position to activeShape
-            for (int i = 0; i < 4; i++) {
-                activeShape[i][0] = candidate[i][0];
-                activeShape[i][1] = candidate[i][1];
+        int next = (rotation + turn) & 3;
+        int[][] candidate = ROTATIONS[shapeId][next];
+        for (int[] kick : getKicks(shapeId, rotation, turn)) {
+            if (isValidPosition(candidate, pieceX + kick[0], pieceY + kick[1])) {
+                pieceX += kick[0];
+                pieceY += kick[1];
+                rotation = next;
+                activeShape = candidate;
+                return true;
             }
-            return true;
         }
         return false;
     }
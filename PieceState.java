@@ -0,0 +1,112 @@
+// A falling piece packed into a single int: shape type, rotation and position.
+// These are plain values, so search code can explore millions of hypothetical
+// placements against a Board without allocating or touching the live Piece.
+//
+// Layout: bits 0-2 type, bits 3-4 rotation, bits 5-12 x, bits 13-20 y.
+// x and y are stored with a bias so positions just outside the board still fit.
+public final class PieceState {
+    public static final int NONE = -1; // Returned when a move or rotation is blocked
+
+    private static final int TYPE_BITS = 3;
+    private static final int ROTATION_BITS = 2;
+    private static final int COORD_BITS = 8;
+    private static final int COORD_MASK = (1 << COORD_BITS) - 1;
+    private static final int COORD_BIAS = 1 << (COORD_BITS - 1);
+    private static final int ROTATION_SHIFT = TYPE_BITS;
+    private static final int X_SHIFT = ROTATION_SHIFT + ROTATION_BITS;
+    private static final int Y_SHIFT = X_SHIFT + COORD_BITS;
+
+    private PieceState() {}
+
+    public static int pack(int type, int rotation, int x, int y) {
+        return type
+                | (rotation << ROTATION_SHIFT)
+                | ((x + COORD_BIAS) << X_SHIFT)
+                | ((y + COORD_BIAS) << Y_SHIFT);
+    }
+
+    public static int type(int state) {
+        return state & ((1 << TYPE_BITS) - 1);
+    }
+
+    public static int rotation(int state) {
+        return (state >>> ROTATION_SHIFT) & ((1 << ROTATION_BITS) - 1);
+    }
+
+    public static int x(int state) {
+        return ((state >>> X_SHIFT) & COORD_MASK) - COORD_BIAS;
+    }
+
+    public static int y(int state) {
+        return ((state >>> Y_SHIFT) & COORD_MASK) - COORD_BIAS;
+    }
+
+    // Block offsets of the piece, shared with Piece.ROTATIONS and read-only
+    public static int[][] shape(int state) {
+        return Piece.ROTATIONS[type(state)][rotation(state)];
+    }
+
+    // Descriptor for a freshly spawned piece, matching Piece.spawnSpecificPiece
+    public static int spawn(Board board, int type) {
+        int y = board.BUFFER_HEIGHT;
+        if (type == 0) y++; // I piece spawns one row lower
+        return pack(type, 0, (board.WIDTH / 2) - 1, y);
+    }
+
+    public static boolean fits(Board board, int state) {
+        return !board.collides(shape(state), x(state), y(state));
+    }
+
+    public static boolean isLanded(Board board, int state) {
+        return board.collides(shape(state), x(state), y(state) + 1);
+    }
+
+    // Shifts the piece by (dx, dy), or returns NONE if that position is blocked
+    public static int move(Board board, int state, int dx, int dy) {
+        int x = x(state) + dx;
+        int y = y(state) + dy;
+        if (board.collides(shape(state), x, y)) return NONE;
+        return pack(type(state), rotation(state), x, y);
+    }
+
+    // Rotates by turn quarter turns (1 = clockwise, 3 = counter-clockwise) using SRS kicks,
+    // or returns NONE if every kick is blocked
+    public static int rotate(Board board, int state, int turn) {
+        int type = type(state);
+        if (type == 3) return NONE; // O piece does not rotate
+
+        int rotation = rotation(state);
+        int next = (rotation + turn) & 3;
+        int[][] candidate = Piece.ROTATIONS[type][next];
+        int x = x(state);
+        int y = y(state);
+        for (int[] kick : Piece.getKicks(type, rotation, turn)) {
+            if (!board.collides(candidate, x + kick[0], y + kick[1])) {
+                return pack(type, next, x + kick[0], y + kick[1]);
+            }
+        }
+        return NONE;
+    }
+
+    // Drops the piece straight down onto the stack
+    public static int drop(Board board, int state) {
+        int distance = board.dropDistance(shape(state), x(state), y(state));
+        return pack(type(state), rotation(state), x(state), y(state) + distance);
+    }
+
+    // Writes the piece into the board and clears any rows it completes.
+    // Returns the number of lines cleared.
+    public static int lock(Board board, int state) {
+        int[][] shape = shape(state);
+        int x = x(state);
+        int y = y(state);
+        int top = Integer.MAX_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int[] block : shape) {
+            board.placePiece(x + block[0], y + block[1], type(state) + 1);
+            top = Math.min(top, y + block[1]);
+            bottom = Math.max(bottom, y + block[1]);
+        }
+        return board.clearCompletedRows(top, bottom);
+    }
+}
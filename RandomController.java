@@ -0,0 +1,54 @@
+import java.util.SplittableRandom;
+
+// Plays by picking a random orientation and column for each piece, tapping
+// towards it and hard dropping. Cheap baseline for batch runs and tests.
+public class RandomController implements Controller {
+    private final SplittableRandom random;
+    private int plannedFor = -1;   // Pieces placed when the current plan was made
+    private int targetRotation;
+    private int targetX;
+    private int lastInputs;
+    private int lastX;
+    private int rotationsTried;
+
+    public RandomController(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int nextInputs(TetrisSimulation simulation) {
+        Piece piece = simulation.getCurrentPiece();
+        if (simulation.getPiecesPlaced() != plannedFor) {
+            plannedFor = simulation.getPiecesPlaced();
+            targetRotation = random.nextInt(4);
+            targetX = random.nextInt(simulation.getBoard().WIDTH);
+            lastInputs = 0;
+            lastX = Integer.MIN_VALUE;
+            rotationsTried = 0;
+        }
+
+        // Release between taps so every tap registers as a new press
+        if (lastInputs != 0) {
+            lastInputs = 0;
+            return 0;
+        }
+
+        if (piece.getRotation() != targetRotation && rotationsTried < 4) {
+            rotationsTried++;
+            return tap(TetrisSimulation.INPUT_ROTATE_CW);
+        }
+
+        // Stop steering once a tap no longer moves the piece
+        int x = piece.getX();
+        if (x != targetX && x != lastX) {
+            lastX = x;
+            return tap(x < targetX ? TetrisSimulation.INPUT_RIGHT : TetrisSimulation.INPUT_LEFT);
+        }
+        return tap(TetrisSimulation.INPUT_HARD_DROP);
+    }
+
+    private int tap(int input) {
+        lastInputs = input;
+        return input;
+    }
+}
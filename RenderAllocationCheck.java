@@ -0,0 +1,63 @@
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+// Checks that drawing a frame stays (nearly) allocation-free. A headless game
+// played by HeuristicBot is drawn into an image frame after frame, and the bytes
+// the drawing thread allocates inside paintComponent() are counted with the
+// JVM's per-thread allocation counter. The game logic and snapshot hand-over run
+// between frames and are not counted; only the drawing path is held to the limit.
+//
+// A few hundred bytes per frame are allocated inside the JDK's image drawing
+// itself and cannot be avoided from here, so the limit is per frame rather than zero.
+//
+// Usage: java RenderAllocationCheck [frames] [maxBytesPerFrame]
+public class RenderAllocationCheck {
+    private static final long SEED = 20240601L;
+    private static final int WIDTH = 350, HEIGHT = 420; // TetrisGame's window size
+
+    public static void main(String[] args) {
+        int frames = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+        long maxBytesPerFrame = (args.length > 1) ? Long.parseLong(args[1]) : 512;
+        System.setProperty("java.awt.headless", "true");
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Error: this JVM cannot count allocated bytes per thread");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        TetrisGame game = new TetrisGame(SEED);
+        game.setBot(Bot.create("heuristic", null, SEED));
+        game.init();
+        game.startDrawingToImage(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB));
+
+        // The first pass warms up the caches and the JIT, the second is measured
+        long bytes = 0, nanos = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            bytes = 0;
+            nanos = 0;
+            for (int i = 0; i < frames; i++) {
+                game.update(1.0 / TetrisSimulation.TICKS_PER_SECOND);
+                game.publishFrame();
+                game.getRenderer().nextFrame();
+
+                long start = System.nanoTime();
+                long before = threads.getThreadAllocatedBytes(thread);
+                game.paintComponent();
+                bytes += threads.getThreadAllocatedBytes(thread) - before;
+                nanos += System.nanoTime() - start;
+            }
+        }
+        game.stopDrawingToImage();
+
+        double perFrame = bytes / (double) frames;
+        boolean ok = perFrame <= maxBytesPerFrame;
+        System.out.printf("%d frames, %d pieces placed: %.1f bytes/frame (limit %d), %.1f us/frame  %s%n",
+                frames, game.getSimulation().getPiecesPlaced(), perFrame, maxBytesPerFrame,
+                nanos / 1e3 / frames, ok ? "ok" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+}
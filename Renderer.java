@@ -1,13 +1,17 @@
 import java.awt.Color;
-import java.util.List;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
+// Draws the game from FrameSnapshots published by the logic thread. The renderer
+// never touches the live Board, Piece or scores, so it can run on any one thread
+// (the Event Dispatch Thread or the active render thread) while the game runs on
+// its own.
 public class Renderer {
     private GameEngine ge; // To access drawing methods from GameEngine
-    private Board board;
-    private Piece piece;
-    private ScoreManager scoreManager;
-    private GameState gameState;
-    private TetrisGame game;
+    private TripleBuffer<FrameSnapshot> frames;
+    private FrameSnapshot frame; // Snapshot being drawn
+    private final int width, height; // Visible board size in cells
 
     // Tile palette (should be initialized in TetrisGame or passed in)
     private Color[] tileColors;
@@ -16,155 +20,340 @@ public class Renderer {
     private static final int PREVIEW_X = 265;  // Adjust based on your layout
     private static final int PREVIEW_Y = 150;  // Start Y position for previews
     private static final int PREVIEW_SPACING = 50; // Vertical space between previews
+    private static final int PREVIEW_SLOTS = 3; // Previews that fit above the hold box
     private static final int HOLD_X = 270;    // Same X as preview but different Y
     private static final int HOLD_Y = 360;     // Above the next pieces
+
+    // Parts of the frame that never change during a game, drawn once into images
+    // and copied to the screen every frame. They are rebuilt when the window size
+    // changes or invalidateStaticLayers() is called.
+    private BufferedImage boardLayer;  // Background, grid lines and walls, whole window
+    private BufferedImage panelLayer;  // Side panel labels and preview boxes
+    private int panelX;                // Left edge of the side panel
+    private int layerWidth, layerHeight;
+
+    // What was last asked to be repainted, so repaintChanged() can leave alone
+    // everything that has not changed since
+    private long shownMode = -1;          // frameMode() of the last frame
+    private long shownBoard = -1;         // Board version of the last frame
+    private final byte[] shownColors;     // Cell colours of the last frame
+    private final int[] shownCells = new int[8];  // Piece then ghost cells as y * width + x, -1 if hidden
+    private final int[] pieceCells = new int[8];
+    private final int[] shownPanel = new int[3 + PREVIEW_SLOTS]; // Score, level, held piece, previews
+    private final int[] panel = new int[3 + PREVIEW_SLOTS];
+    private int dirtyMinX, dirtyMaxX, dirtyMinY, dirtyMaxY; // Changed cells, visible rows
+    private final Rectangle clip = new Rectangle();
+
+    // Number texts drawn last frame, kept so that unchanged numbers are not
+    // formatted again every frame
+    private static final int SCORE_TEXT = 0, LEVEL_TEXT = 1, COUNTDOWN_TEXT = 2,
+            FINAL_SCORE_TEXT = 3, FINAL_LEVEL_TEXT = 4;
+    private final String[] texts = new String[5];
+    private final long[] textValues = new long[5];
     
-    public Renderer(GameEngine ge, Board board, Piece piece, ScoreManager scoreManager, 
-                   GameState gameState, Color[] tileColors, TetrisGame game) {
+    public Renderer(GameEngine ge, TripleBuffer<FrameSnapshot> frames, Color[] tileColors) {
         this.ge = ge;
-        this.board = board;
-        this.piece = piece;
-        this.scoreManager = scoreManager;
-        this.gameState = gameState;
+        this.frames = frames;
         this.tileColors = tileColors;
-        this.game = game;
+        frame = frames.front();
+        width = frame.getWidth();
+        height = frame.getHeight();
+        shownColors = new byte[width * height];
+        panelX = width * 20 + 40;
     }
 
-    public void setPiece(Piece currentPiece) {
-        this.piece = currentPiece;
+    // Moves on to the newest snapshot the logic thread has published. Returns false
+    // when there is none since the last call.
+    public boolean nextFrame() {
+        if (!frames.acquire()) return false;
+        frame = frames.front();
+        return true;
     }
 
-    public void render() {
-        ge.changeBackgroundColor(ge.black);
-        ge.clearBackground(ge.mWidth, ge.mHeight);
-
-        drawGridLines();
-        drawBorderWalls();
-        drawPlacedTiles();
+    // Makes the next frame redraw the static layers, e.g. after changing colours
+    public void invalidateStaticLayers() {
+        boardLayer = null;
+        panelLayer = null;
+        shownMode = -1;
+    }
 
-        if (gameState.isShowCountdown()) {
-            drawCountdown();
+    // Takes the newest snapshot and asks the engine to repaint only what changed
+    // since the last one drawn: cells whose colour changed, the old and new piece
+    // and ghost cells, and the side panel when its numbers or pieces change.
+    // Switching screens (pause, help, countdown, game over) repaints the whole
+    // window. When no new snapshot has been published nothing is repainted.
+    public void repaintChanged() {
+        if (!nextFrame()) return;
+        long mode = frameMode();
+        if (mode != shownMode) {
+            shownMode = mode;
+            rememberBoard();
+            findPieceCells(shownCells);
+            findPanelState(shownPanel);
+            ge.repaint(0, 0, ge.width(), ge.height());
             return;
         }
 
-        if (gameState.isGameOver()) {
-            drawGameOverScreen();
-            return;
+        dirtyMinX = dirtyMinY = Integer.MAX_VALUE;
+        dirtyMaxX = dirtyMaxY = -1;
+        if (frame.getBoardVersion() != shownBoard) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (frame.getColor(x, y) != shownColors[y * width + x]) markDirty(x, y);
+                }
+            }
+            rememberBoard();
         }
 
-        if (gameState.isShowHelp()) {
-            drawHelpScreen();
-            return;
+        findPieceCells(pieceCells);
+        if (!Arrays.equals(pieceCells, shownCells)) {
+            for (int i = 0; i < pieceCells.length; i++) {
+                markDirtyCell(shownCells[i]);
+                markDirtyCell(pieceCells[i]);
+                shownCells[i] = pieceCells[i];
+            }
+        }
+        if (dirtyMaxX >= 0) {
+            ge.repaint((dirtyMinX + 1) * 20, dirtyMinY * 20,
+                    (dirtyMaxX - dirtyMinX + 1) * 20, (dirtyMaxY - dirtyMinY + 1) * 20);
         }
 
-        if (gameState.isPaused()) {
-            drawPauseMenu();
-            return;
+        findPanelState(panel);
+        if (!Arrays.equals(panel, shownPanel)) {
+            System.arraycopy(panel, 0, shownPanel, 0, panel.length);
+            ge.repaint(panelX, 0, ge.width() - panelX, ge.height());
+        }
+    }
+
+    // Which screen is showing: 0 while playing, otherwise a value that changes
+    // whenever the overlay's contents do
+    private long frameMode() {
+        switch (frame.getScreen()) {
+            case FrameSnapshot.COUNTDOWN: return 16 + frame.getCountdown();
+            case FrameSnapshot.GAME_OVER: return 1;
+            case FrameSnapshot.HELP: return 2;
+            case FrameSnapshot.PAUSED: return 8 + frame.getPauseSelection();
+            default: return 0;
+        }
+    }
+
+    private void rememberBoard() {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                shownColors[y * width + x] = (byte) frame.getColor(x, y);
+            }
+        }
+        shownBoard = frame.getBoardVersion();
+    }
+
+    // Cells covered by the piece and its ghost, -1 for cells not on screen
+    private void findPieceCells(int[] cells) {
+        Arrays.fill(cells, -1);
+        if (frame.getScreen() != FrameSnapshot.PLAYING) return;
+        for (int i = 0; i < cells.length; i++) cells[i] = frame.getPieceCell(i);
+    }
+
+    private void findPanelState(int[] state) {
+        int previews = Math.min(frame.getPreviewCount(), PREVIEW_SLOTS);
+        state[0] = frame.getScore();
+        state[1] = frame.getLevel();
+        state[2] = frame.getHeld();
+        for (int i = 0; i < previews; i++) state[3 + i] = frame.getPreview(i);
+    }
+
+    private void markDirtyCell(int cell) {
+        if (cell >= 0) markDirty(cell % width, cell / width);
+    }
+
+    private void markDirty(int x, int y) {
+        dirtyMinX = Math.min(dirtyMinX, x);
+        dirtyMaxX = Math.max(dirtyMaxX, x);
+        dirtyMinY = Math.min(dirtyMinY, y);
+        dirtyMaxY = Math.max(dirtyMaxY, y);
+    }
+
+    // Draws the current snapshot. Only the parts inside the engine's clip are
+    // drawn, so a frame that repaints a few cells only costs a few draw calls.
+    public void render() {
+        updateStaticLayers();
+        ge.getClipBounds(clip);
+        ge.drawImage(boardLayer, 0, 0);
+        drawPlacedTiles();
+
+        switch (frame.getScreen()) {
+            case FrameSnapshot.COUNTDOWN:
+                drawCountdown();
+                return;
+            case FrameSnapshot.GAME_OVER:
+                drawGameOverScreen();
+                return;
+            case FrameSnapshot.HELP:
+                drawHelpScreen();
+                return;
+            case FrameSnapshot.PAUSED:
+                drawPauseMenu();
+                return;
+            default:
+                break;
         }
 
         // Only draw piece and ghost if game is active
-        if (piece != null) {
-            drawGhostPiece();
-            drawCurrentPiece();
+        drawGhostPiece();
+        drawCurrentPiece();
+
+        // Skip the side panel when it is outside the clip
+        if (clip.x + clip.width > panelX) {
+            drawScoreAndLevel();
+            drawNextPieces(); // Add this line
+            drawHoldPiece();  // Add this before or after drawNextPieces()
         }
+    }
 
-        drawScoreAndLevel();
-        drawNextPieces(); // Add this line
-        drawHoldPiece();  // Add this before or after drawNextPieces()
+    private void updateStaticLayers() {
+        int windowWidth = Math.max(1, ge.width());
+        int windowHeight = Math.max(1, ge.height());
+        if (boardLayer != null && windowWidth == layerWidth && windowHeight == layerHeight) return;
+        layerWidth = windowWidth;
+        layerHeight = windowHeight;
+
+        boardLayer = ge.createImage(windowWidth, windowHeight);
+        ge.startDrawingToImage(boardLayer);
+        ge.changeBackgroundColor(ge.black);
+        ge.clearBackground(windowWidth, windowHeight);
+        drawGridLines();
+        drawBorderWalls();
+        ge.stopDrawingToImage();
+
+        panelLayer = ge.createImage(Math.max(1, windowWidth - panelX), windowHeight);
+        ge.startDrawingToImage(panelLayer);
+        ge.translate(-panelX, 0);
+        ge.changeBackgroundColor(ge.black);
+        ge.clearBackground(windowWidth, windowHeight);
+        drawPanelLabels();
+        ge.stopDrawingToImage();
+    }
+
+    // Labels and empty preview boxes of the side panel
+    private void drawPanelLabels() {
+        ge.changeColor(ge.white);
+        ge.drawText(265, 45, "SCORE:", 18);
+        ge.drawText(265, 85, "LEVEL:", 18);
+        ge.drawText(PREVIEW_X, PREVIEW_Y - 20, "NEXT", 18);
+        ge.drawText(HOLD_X, HOLD_Y - 20, "HOLD", 18);
+
+        int previews = Math.min(frame.getPreviewCount(), PREVIEW_SLOTS);
+        ge.changeColor(40, 40, 40);
+        for (int i = 0; i < previews; i++) {
+            ge.drawSolidRectangle(PREVIEW_X, PREVIEW_Y + (i * PREVIEW_SPACING), PREVIEW_PIECE_SIZE * 4, PREVIEW_PIECE_SIZE * 4);
+        }
     }
 
     private void drawGridLines() {
         ge.changeColor(50, 50, 50);
-        for (int x = 0; x <= board.WIDTH; x++) {
+        for (int x = 0; x <= width; x++) {
             int px = (x + 1) * 20;
-            ge.drawLine(px, 0, px, board.VISIBLE_HEIGHT * 20);
+            ge.drawLine(px, 0, px, height * 20);
         }
-        for (int y = 0; y <= board.VISIBLE_HEIGHT; y++) {
+        for (int y = 0; y <= height; y++) {
             int py = y * 20;
-            ge.drawLine(20, py, (board.WIDTH + 1) * 20, py);
+            ge.drawLine(20, py, (width + 1) * 20, py);
         }
     }
 
     private void drawBorderWalls() {
         ge.changeColor(128, 128, 128);
         // Draw vertical walls for the visible height
-        for (int y = 0; y <= board.VISIBLE_HEIGHT; y++) {
+        for (int y = 0; y <= height; y++) {
             ge.drawSolidRectangle(1, y * 20 + 1, 18, 18);
-            ge.drawSolidRectangle((board.WIDTH + 1) * 20 + 1, y * 20 + 1, 18, 18);
+            ge.drawSolidRectangle((width + 1) * 20 + 1, y * 20 + 1, 18, 18);
         }
         // Draw bottom wall
-        for (int x = 0; x < board.WIDTH; x++) {
-            ge.drawSolidRectangle((x + 1) * 20 + 1, board.VISIBLE_HEIGHT * 20 + 1, 18, 18);
+        for (int x = 0; x < width; x++) {
+            ge.drawSolidRectangle((x + 1) * 20 + 1, height * 20 + 1, 18, 18);
         }
     }
 
     private void drawPlacedTiles() {
-        int[][] grid = board.getGrid();
-        // Only draw the visible portion
-        for (int y = board.BUFFER_HEIGHT; y < board.TOTAL_HEIGHT; y++) {
-            for (int x = 0; x < board.WIDTH; x++) {
-                if (grid[x][y] != 0) {
-                    ge.changeColor(tileColors[grid[x][y]]);
-                    // Adjust y coordinate to account for buffer
-                    int displayY = y - board.BUFFER_HEIGHT;
-                    ge.drawSolidRectangle((x + 1) * 20 + 1, displayY * 20 + 1, 18, 18);
+        // Only draw the visible cells inside the clip
+        int firstX = Math.max(0, clip.x / 20 - 1);
+        int lastX = Math.min(width - 1, (clip.x + clip.width - 1) / 20 - 1);
+        int firstY = Math.max(0, clip.y / 20);
+        int lastY = Math.min(height - 1, (clip.y + clip.height - 1) / 20);
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                int color = frame.getColor(x, y);
+                if (color != 0) {
+                    ge.changeColor(tileColors[color]);
+                    ge.drawSolidRectangle((x + 1) * 20 + 1, y * 20 + 1, 18, 18);
                 }
             }
         }
     }
 
     private void drawCurrentPiece() {
-        if (piece == null) return;
-        ge.changeColor(tileColors[piece.getColor()]);
-        int[][] shape = piece.getShape();
-        for (int[] block : shape) {
-            int px = piece.getX() + block[0];
-            int py = piece.getY() + block[1];
-            // Only draw if in visible area (below buffer zone)
-            if (py >= board.BUFFER_HEIGHT) {
-                // Adjust y coordinate to account for buffer
-                int displayY = py - board.BUFFER_HEIGHT;
-                ge.drawSolidRectangle((px + 1) * 20 + 1, displayY * 20 + 1, 18, 18);
-            }
+        ge.changeColor(tileColors[frame.getPieceColor()]);
+        int offset = fallOffset();
+        for (int i = 0; i < 4; i++) {
+            drawCell(frame.getPieceCell(i), offset);
         }
     }
 
+    // Pixels the falling piece is drawn below its row. The active render thread
+    // draws more often than the logic steps, so it slides the piece by the
+    // gravity built up so far plus what the time since the step adds; the row
+    // below is free until the piece lands, so it never overlaps the stack.
+    // Swing repaints only cover changed cells and draw the piece on its row.
+    private int fallOffset() {
+        if (!ge.isActiveRendering()) return 0;
+        double interpolation = ge.getInterpolation(frame.getTickTime());
+        double rows = frame.getFallProgress() + interpolation * frame.getFallSpeed();
+        return (int) Math.round(20 * Math.min(1.0, rows));
+    }
+
     private void drawGhostPiece() {
-        if (piece == null) return;
-        int[][] ghostBlocks = piece.getGhostCoordinates();
-        Color base = tileColors[piece.getColor()];
-        Color translucent = new Color(base.getRed(), base.getGreen(), base.getBlue(), 88);
-        ge.changeColor(translucent);
-        for (int[] block : ghostBlocks) {
-            int px = block[0];
-            int py = block[1];
-            // Only draw if in visible area
-            if (py >= board.BUFFER_HEIGHT) {
-                // Adjust y coordinate to account for buffer
-                int displayY = py - board.BUFFER_HEIGHT;
-                ge.drawSolidRectangle((px + 1) * 20 + 1, displayY * 20 + 1, 18, 18);
-            }
+        Color base = tileColors[frame.getPieceColor()];
+        ge.changeColor(ge.getColor(base.getRed(), base.getGreen(), base.getBlue(), 88));
+        for (int i = 4; i < 8; i++) {
+            drawCell(frame.getPieceCell(i));
         }
     }
 
-    private void drawScoreAndLevel() {
-        // Assuming a fixed position for score/level display
-        ge.changeColor(ge.black); // Clear area for text
-        ge.drawSolidRectangle(board.WIDTH * 20 + 40, 0, ge.mWidth - (board.WIDTH * 20 + 25) , ge.mHeight);
+    // Fills a cell given as y * width + x; cells above the visible area are -1
+    private void drawCell(int cell) {
+        drawCell(cell, 0);
+    }
 
+    // Fills a cell moved down by offsetY pixels
+    private void drawCell(int cell, int offsetY) {
+        if (cell < 0) return;
+        int x = cell % width;
+        int y = cell / width;
+        ge.drawSolidRectangle((x + 1) * 20 + 1, y * 20 + 1 + offsetY, 18, 18);
+    }
+
+    private void drawScoreAndLevel() {
+        // The panel layer clears the side panel and holds the labels
+        ge.drawImage(panelLayer, panelX, 0);
 
         ge.changeColor(ge.white);
-        ge.drawText(265, 45, "SCORE:", 18);
-        ge.drawText(265, 65, ge.toString(scoreManager.getScore()), 18);
-        ge.drawText(265, 85, "LEVEL:", 18);
-        ge.drawText(265, 105, ge.toString(scoreManager.getLevel()), 18);
+        ge.drawText(265, 65, text(SCORE_TEXT, "", frame.getScore()), 18);
+        ge.drawText(265, 105, text(LEVEL_TEXT, "", frame.getLevel()), 18);
+    }
+
+    // prefix + value, formatted again only when the value in that slot changes
+    private String text(int slot, String prefix, long value) {
+        if (texts[slot] == null || textValues[slot] != value) {
+            texts[slot] = prefix + value;
+            textValues[slot] = value;
+        }
+        return texts[slot];
     }
 
     private void drawCountdown() {
-        long remaining = gameState.getCountdownRemaining();
+        long remaining = frame.getCountdown();
         ge.changeColor(ge.white);
         if (remaining > 0) {
-            ge.drawBoldText(150, 200, "" + remaining, 50);
+            ge.drawBoldText(150, 200, text(COUNTDOWN_TEXT, "", remaining), 50);
         } else {
             ge.drawBoldText(130, 200, "Go!", 50);
         }
@@ -173,8 +362,8 @@ public class Renderer {
     private void drawGameOverScreen() {
         ge.changeColor(ge.white);
         ge.drawBoldText(90, 130, "Game Over!", 30);
-        ge.drawText(80, 170, "Final Score: " + scoreManager.getScore(), 20);
-        ge.drawText(80, 190, "Level: " + scoreManager.getLevel(), 20);
+        ge.drawText(80, 170, text(FINAL_SCORE_TEXT, "Final Score: ", frame.getScore()), 20);
+        ge.drawText(80, 190, text(FINAL_LEVEL_TEXT, "Level: ", frame.getLevel()), 20);
         ge.drawText(75, 230, "Press R to restart", 20);
     }
 
@@ -193,9 +382,9 @@ public class Renderer {
     private void drawPauseMenu() {
         ge.changeColor(ge.white);
         ge.drawBoldText(100, 100, "Game Paused", 24);
-        String[] options = gameState.getPauseMenuOptions();
+        String[] options = frame.getPauseOptions();
         for (int i = 0; i < options.length; i++) {
-            if (i == gameState.getPauseMenuSelection()) {
+            if (i == frame.getPauseSelection()) {
                 ge.changeColor(ge.yellow);
             } else {
                 ge.changeColor(ge.white);
@@ -205,32 +394,19 @@ public class Renderer {
     }
 
     private void drawNextPieces() {
-        List<Integer> nextPieces = piece.getNextPieces();
-        
-        // Draw "NEXT" text
-        ge.changeColor(ge.white);
-        ge.drawText(PREVIEW_X, PREVIEW_Y - 20, "NEXT", 18);
+        int previews = Math.min(frame.getPreviewCount(), PREVIEW_SLOTS);
 
-        // Draw preview boxes and pieces
-        for (int i = 0; i < nextPieces.size(); i++) {
+        // Draw the pieces; the label and boxes are in the panel layer
+        for (int i = 0; i < previews; i++) {
             int y = PREVIEW_Y + (i * PREVIEW_SPACING);
-            
-            // Draw preview box background
-            ge.changeColor(40, 40, 40);
-            ge.drawSolidRectangle(PREVIEW_X, y, PREVIEW_PIECE_SIZE * 4, PREVIEW_PIECE_SIZE * 4);
-            
-            // Draw the piece
-            drawPreviewPiece(nextPieces.get(i), PREVIEW_X, y);
+            drawPreviewPiece(frame.getPreview(i), PREVIEW_X, y);
         }
     }
 
     private void drawHoldPiece() {
-        // Draw "HOLD" text
-        ge.changeColor(ge.white);
-        ge.drawText(HOLD_X, HOLD_Y - 20, "HOLD", 18);
-
-        Integer heldType = game.getHeldPieceType();
-        if (heldType != null) {
+        // The label is in the panel layer
+        int heldType = frame.getHeld();
+        if (heldType >= 0) {
             // Draw hold box background
             ge.changeColor(40, 40, 40);
             ge.drawSolidRectangle(HOLD_X, HOLD_Y, PREVIEW_PIECE_SIZE * 4, PREVIEW_PIECE_SIZE * 4);
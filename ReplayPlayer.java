@@ -0,0 +1,172 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Plays back a replay written by ReplayRecorder. As a Controller it returns the
+// recorded input bits step by step, so feeding it to a simulation created with
+// createSimulation() reproduces the original game exactly. seek() jumps to any
+// step by restoring the nearest keyframe before it and simulating the rest, so
+// random access never costs more than one keyframe interval of ticks.
+public class ReplayPlayer implements Controller {
+    private final long seed;
+    private long[] eventSteps = new long[64];
+    private byte[] eventInputs = new byte[64];
+    private int eventCount;
+    private long[] keyframeSteps = new long[8];
+    private byte[][] keyframes = new byte[8][];
+    private int keyframeCount;
+    private final long endStep;
+    private final int claimedScore, claimedLines, claimedLevel;
+
+    private int cursor;  // Next event to apply
+    private long step;   // Steps played so far
+    private int inputs;  // Inputs in effect
+
+    public ReplayPlayer(ByteBuffer data) {
+        for (byte b : ReplayRecorder.MAGIC) {
+            if (data.get() != b) throw new IllegalArgumentException("Not a replay file");
+        }
+        int version = data.get() & 0xFF;
+        if (version != ReplayRecorder.VERSION) {
+            throw new IllegalArgumentException("Unsupported replay version " + version);
+        }
+        seed = data.getLong();
+
+        long at = 0;
+        while (true) {
+            at += readVarint(data);
+            int value = data.get() & 0xFF;
+            if (value == ReplayRecorder.END_MARKER) break;
+            if (value == ReplayRecorder.KEYFRAME_MARKER) {
+                readKeyframe(data, at);
+                continue;
+            }
+            if (eventCount == eventSteps.length) {
+                eventSteps = Arrays.copyOf(eventSteps, eventCount * 2);
+                eventInputs = Arrays.copyOf(eventInputs, eventCount * 2);
+            }
+            eventSteps[eventCount] = at;
+            eventInputs[eventCount] = (byte) value;
+            eventCount++;
+        }
+        endStep = at;
+        claimedScore = (int) readVarint(data);
+        claimedLines = (int) readVarint(data);
+        claimedLevel = (int) readVarint(data);
+    }
+
+    public static ReplayPlayer load(Path path) throws IOException {
+        return new ReplayPlayer(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    // A fresh simulation seeded like the recorded game
+    public TetrisSimulation createSimulation() {
+        return new TetrisSimulation(seed);
+    }
+
+    @Override
+    public int nextInputs(TetrisSimulation simulation) {
+        while (cursor < eventCount && eventSteps[cursor] <= step) {
+            inputs = eventInputs[cursor++];
+        }
+        step++;
+        return inputs;
+    }
+
+    // Runs the rest of the replay on the simulation as fast as possible
+    public void playToEnd(TetrisSimulation simulation) {
+        fastForward(simulation, endStep - step);
+    }
+
+    // Plays the next few steps headless, stopping at the end of the replay
+    public void fastForward(TetrisSimulation simulation, long steps) {
+        long target = Math.min(endStep, step + steps);
+        while (step < target) {
+            simulation.step(nextInputs(simulation));
+        }
+    }
+
+    // Moves the simulation to the state it had after the given number of steps.
+    // The simulation must be the one this player has been driving.
+    public void seek(TetrisSimulation simulation, long target) {
+        target = Math.max(0, Math.min(endStep, target));
+        int keyframe = keyframeCount - 1;
+        while (keyframe >= 0 && keyframeSteps[keyframe] > target) keyframe--;
+        long from = (keyframe >= 0) ? keyframeSteps[keyframe] : 0;
+
+        // Keep playing when that is cheaper than restoring
+        if (target < step || from > step) {
+            if (keyframe >= 0) {
+                restoreKeyframe(simulation, keyframe);
+            } else {
+                simulation.restart(seed);
+                rewindTo(0);
+            }
+        }
+        fastForward(simulation, target - step);
+    }
+
+    private void restoreKeyframe(TetrisSimulation simulation, int keyframe) {
+        try {
+            simulation.loadSnapshot(new DataInputStream(new ByteArrayInputStream(keyframes[keyframe])));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rewindTo(keyframeSteps[keyframe]);
+    }
+
+    // Positions the event cursor as if nextInputs had been called target times
+    private void rewindTo(long target) {
+        cursor = 0;
+        inputs = 0;
+        while (cursor < eventCount && eventSteps[cursor] < target) {
+            inputs = eventInputs[cursor++];
+        }
+        step = target;
+    }
+
+    private void readKeyframe(ByteBuffer data, long at) {
+        int length = (int) readVarint(data);
+        if (length < 0 || length > data.remaining()) {
+            throw new IllegalArgumentException("Malformed keyframe in replay");
+        }
+        byte[] snapshot = new byte[length];
+        data.get(snapshot);
+        if (keyframeCount == keyframeSteps.length) {
+            keyframeSteps = Arrays.copyOf(keyframeSteps, keyframeCount * 2);
+            keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+        }
+        keyframeSteps[keyframeCount] = at;
+        keyframes[keyframeCount] = snapshot;
+        keyframeCount++;
+    }
+
+    public boolean isFinished() {
+        return step >= endStep;
+    }
+
+    private static long readVarint(ByteBuffer data) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = data.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+            if (shift > 63) throw new IllegalArgumentException("Malformed varint in replay");
+        }
+    }
+
+    public long getSeed() { return seed; }
+    public long getStep() { return step; }
+    public long getEndStep() { return endStep; }
+    public int getKeyframeCount() { return keyframeCount; }
+    public int getClaimedScore() { return claimedScore; }
+    public int getClaimedLines() { return claimedLines; }
+    public int getClaimedLevel() { return claimedLevel; }
+}
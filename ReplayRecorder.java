@@ -0,0 +1,157 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Records a game as its piece seed plus the input bits fed to every simulation step,
+// so ReplayPlayer can play it back tick for tick. Only changes in the input bits are
+// stored, each as a varint tick delta and one byte, which keeps a ten minute game
+// down to a few KB. Every KEYFRAME_INTERVAL steps a snapshot of the whole simulation
+// is stored as well, so a player can seek without replaying from the first tick.
+//
+// File layout:
+//   "TRPL", version byte, seed (8 bytes)
+//   events:  varint ticks since the previous event, input byte
+//   keyframe: varint ticks since the previous event, KEYFRAME_MARKER,
+//            varint length, TetrisSimulation snapshot
+//   end:     varint ticks since the previous event, END_MARKER
+//   result:  varint score, varint lines, varint level
+public class ReplayRecorder {
+    static final byte[] MAGIC = {'T', 'R', 'P', 'L'};
+    static final int VERSION = 2;
+    static final int END_MARKER = 0xFF;
+    static final int KEYFRAME_MARKER = 0xFE;
+    static final int KEYFRAME_INTERVAL = 20 * TetrisSimulation.TICKS_PER_SECOND;
+
+    // Replays are written on this thread so the game loop never waits on the disk.
+    // It is a daemon so it never keeps the program alive, and the shutdown hook
+    // lets any queued replays finish before the JVM exits.
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replay-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final long EXIT_WAIT_SECONDS = 10;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            WRITER.shutdown();
+            try {
+                if (!WRITER.awaitTermination(EXIT_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    System.out.println("Error: gave up waiting for replays to be written");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "replay-writer-flush"));
+    }
+
+    private byte[] buffer = new byte[1024];
+    private int length;
+    private long steps;          // Simulation steps recorded so far
+    private long lastEventStep;  // Step of the last stored event
+    private int lastInputs;
+    private boolean finished;
+
+    public ReplayRecorder(long seed) {
+        writeBytes(MAGIC);
+        writeByte(VERSION);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (seed >>> shift));
+        }
+    }
+
+    // Call once per simulation step, before stepping, with the inputs passed to that step
+    public void record(int inputs, TetrisSimulation simulation) {
+        if (finished) return;
+        if (steps > 0 && steps % KEYFRAME_INTERVAL == 0) {
+            writeKeyframe(simulation);
+        }
+        if (inputs != lastInputs) {
+            writeVarint(steps - lastEventStep);
+            writeByte(inputs);
+            lastEventStep = steps;
+            lastInputs = inputs;
+        }
+        steps++;
+    }
+
+    // Closes the recording with the final result the player claims
+    public void finish(ScoreManager scoreManager) {
+        if (finished) return;
+        finished = true;
+        writeVarint(steps - lastEventStep);
+        writeByte(END_MARKER);
+        writeVarint(scoreManager.getScore());
+        writeVarint(scoreManager.getLinesCleared());
+        writeVarint(scoreManager.getLevel());
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    // Writes the replay on the background writer thread. Nobody waits on the
+    // result during a game, so a failed write is reported here rather than
+    // through the Future, which completes once the attempt is over.
+    public Future<?> saveAsync(Path path) {
+        byte[] data = toByteArray();
+        return WRITER.submit(() -> {
+            try {
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) Files.createDirectories(parent);
+                Files.write(path, data);
+            } catch (IOException e) {
+                System.out.println("Error: could not write replay " + path + ": " + e);
+            }
+        });
+    }
+
+    private void writeKeyframe(TetrisSimulation simulation) {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream(256);
+        try {
+            simulation.saveSnapshot(new DataOutputStream(snapshot));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeVarint(steps - lastEventStep);
+        writeByte(KEYFRAME_MARKER);
+        writeVarint(snapshot.size());
+        writeBytes(snapshot.toByteArray());
+        lastEventStep = steps;
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    private void writeBytes(byte[] bytes) {
+        for (byte b : bytes) writeByte(b);
+    }
+
+    private void writeByte(int b) {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[length++] = (byte) b;
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+// Checks submitted scores by re-simulating their replays from the first tick and
+// comparing the final score, lines and level with what the replay claims. The
+// keyframes in a replay come from the client, so they are never used here.
+// Replays are memory-mapped and verified in parallel on a ForkJoin pool.
+//
+// Usage: java ReplayVerifier <dir> [threads] [maxMinutes]
+public class ReplayVerifier {
+    private static final int REPLAYS_PER_TASK = 8; // Leaf size for splitting the work
+
+    public enum Verdict { VALID, MISMATCH, INVALID }
+
+    // Outcome of verifying one replay
+    public static class Result {
+        public final Path path;
+        public final Verdict verdict;
+        public final String detail;
+        public final long ticks;
+
+        Result(Path path, Verdict verdict, String detail, long ticks) {
+            this.path = path;
+            this.verdict = verdict;
+            this.detail = detail;
+            this.ticks = ticks;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %s %s", verdict, path.getFileName(), detail);
+        }
+    }
+
+    private final long maxSteps; // Replays claiming to run longer than this are rejected
+
+    public ReplayVerifier(int maxMinutes) {
+        this.maxSteps = (long) maxMinutes * 60 * TetrisSimulation.TICKS_PER_SECOND;
+    }
+
+    // Verifies every replay, filling results in the same order as paths
+    public Result[] verifyAll(ForkJoinPool pool, Path[] paths) {
+        Result[] results = new Result[paths.length];
+        pool.invoke(new VerifyTask(paths, results, 0, paths.length));
+        return results;
+    }
+
+    public Result verify(Path path) {
+        ReplayPlayer player;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            player = new ReplayPlayer(data);
+        } catch (IOException e) {
+            return new Result(path, Verdict.INVALID, "unreadable: " + e.getMessage(), 0);
+        } catch (IllegalArgumentException e) {
+            return new Result(path, Verdict.INVALID, "malformed: " + e.getMessage(), 0);
+        } catch (BufferUnderflowException e) {
+            return new Result(path, Verdict.INVALID, "truncated", 0);
+        }
+        if (player.getEndStep() > maxSteps) {
+            return new Result(path, Verdict.INVALID, "too long: " + player.getEndStep() + " ticks", 0);
+        }
+
+        TetrisSimulation simulation = player.createSimulation();
+        while (!player.isFinished() && !simulation.isGameOver()) {
+            simulation.step(player.nextInputs(simulation));
+        }
+
+        ScoreManager scoreManager = simulation.getScoreManager();
+        int score = scoreManager.getScore();
+        int lines = scoreManager.getLinesCleared();
+        int level = scoreManager.getLevel();
+        long ticks = simulation.getTick();
+        if (score == player.getClaimedScore() && lines == player.getClaimedLines()
+                && level == player.getClaimedLevel()) {
+            return new Result(path, Verdict.VALID,
+                    String.format("score=%d lines=%d level=%d", score, lines, level), ticks);
+        }
+        return new Result(path, Verdict.MISMATCH, String.format(
+                "claimed score=%d lines=%d level=%d, replayed score=%d lines=%d level=%d",
+                player.getClaimedScore(), player.getClaimedLines(), player.getClaimedLevel(),
+                score, lines, level), ticks);
+    }
+
+    private class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Path[] paths;
+        private final Result[] results;
+        private final int from, to;
+
+        VerifyTask(Path[] paths, Result[] results, int from, int to) {
+            this.paths = paths;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= REPLAYS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = verify(paths[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new VerifyTask(paths, results, from, mid), new VerifyTask(paths, results, mid, to));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ReplayVerifier <dir> [threads] [maxMinutes]");
+            System.exit(2);
+        }
+        Path dir = Paths.get(args[0]);
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxMinutes = (args.length > 2) ? Integer.parseInt(args[2]) : 120;
+
+        Path[] paths;
+        try (Stream<Path> files = Files.list(dir)) {
+            paths = files.filter(p -> p.toString().endsWith(".trp")).sorted().toArray(Path[]::new);
+        }
+
+        ReplayVerifier verifier = new ReplayVerifier(maxMinutes);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            Result[] results = verifier.verifyAll(pool, paths);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            int[] counts = new int[Verdict.values().length];
+            long ticks = 0;
+            for (Result result : results) {
+                System.out.println(result);
+                counts[result.verdict.ordinal()]++;
+                ticks += result.ticks;
+            }
+            System.out.printf("%d replays on %d threads in %.2fs: %d valid, %d mismatched, %d invalid%n",
+                    results.length, threads, seconds, counts[Verdict.VALID.ordinal()],
+                    counts[Verdict.MISMATCH.ordinal()], counts[Verdict.INVALID.ordinal()]);
+            System.out.printf("%.0f replays/min, %.0f ticks/s%n",
+                    results.length / seconds * 60, ticks / seconds);
+            if (counts[Verdict.VALID.ordinal()] != results.length) System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
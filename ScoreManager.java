@@ -1,3 +1,7 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class ScoreManager {
     private int playerScore;
     private int currentLevel;
@@ -41,6 +45,17 @@ public class ScoreManager {
         currentLevel = Math.min(newLevel, MAX_LEVEL);
     }
 
+    public void saveState(DataOutput out) throws IOException {
+        out.writeInt(playerScore);
+        out.writeInt(totalLinesCleared);
+    }
+
+    public void loadState(DataInput in) throws IOException {
+        playerScore = in.readInt();
+        totalLinesCleared = in.readInt();
+        updateLevel();
+    }
+
     // Getters
     public int getScore() { return playerScore; }
     public int getLevel() { return currentLevel; }
@@ -1,13 +1,23 @@
 import java.awt.Color;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 
 public class TetrisGame extends GameEngine {
-    private Board board;
-    private Piece currentPiece;
-    private ScoreManager scoreManager;
+    private TetrisSimulation simulation; // All game rules live here, this class only adds a window
+    private SplittableRandom seedSource; // Hands out one generator seed per game
     private GameState gameState;
     private InputHandler inputHandler;
     private Renderer renderer;
+    private TripleBuffer<FrameSnapshot> frames; // Hands frames from the logic thread to the renderer
+    private Controller controller;   // Drives the game instead of the keyboard when set
+    private Controller bot;          // Plays every game when set, see --bot
+    private Path replayDir;          // Games are recorded here when set
+    private ReplayRecorder recorder;
+    private ReplayPlayer replay;     // Replay to show first, if any
 
     // Tile palette - order matters!
     private Color[] tileColors = {
@@ -21,166 +31,129 @@ public class TetrisGame extends GameEngine {
         red     // 7 = Z piece
     };
 
-    private double fallInterval = 1.0;
-    private double fallTimer = 0.0;
-    private final double lockDelay = 0.5;
-    private double lockTimer = 0.0;
-    private Integer heldPieceType = null;
-    private boolean canHold = true;
+    // Arguments: [seed] [--record <dir>] [--replay <file>] [--bot [heuristic|beam|mcts]]
+    //            [--active [capped|uncapped|vsync]]
+    // A seed makes the whole run reproducible, --record saves every finished game
+    // to dir, --replay plays a recorded game back in the window and --bot lets a
+    // bot play instead of the keyboard (HeuristicBot unless another is named).
+    // --active draws from a render thread at 60 frames per second instead of
+    // through Swing repaints; uncapped draws as fast as it can and vsync paces
+    // frames to the display's refresh rate.
+    public static void main(String[] args) throws IOException {
+        Long seed = null;
+        Path replayDir = null;
+        ReplayPlayer replay = null;
+        String bot = null;
+        int pacing = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--record") && i + 1 < args.length) {
+                replayDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--replay") && i + 1 < args.length) {
+                replay = ReplayPlayer.load(Paths.get(args[++i]));
+            } else if (args[i].equals("--bot")) {
+                bot = "heuristic";
+                if (i + 1 < args.length && args[i + 1].matches("heuristic|beam|mcts")) bot = args[++i];
+            } else if (args[i].equals("--active")) {
+                pacing = PACE_CAPPED;
+                if (i + 1 < args.length && args[i + 1].equals("uncapped")) pacing = PACE_UNCAPPED;
+                if (i + 1 < args.length && args[i + 1].equals("vsync")) pacing = PACE_VSYNC;
+                if (i + 1 < args.length && args[i + 1].matches("capped|uncapped|vsync")) i++;
+            } else {
+                seed = Long.parseLong(args[i]);
+            }
+        }
+
+        if (seed == null) seed = new SplittableRandom().nextLong();
+        TetrisGame game = new TetrisGame(seed);
+        game.replayDir = replayDir;
+        game.replay = replay;
+        if (bot != null) game.setBot(Bot.create(bot, ForkJoinPool.commonPool(), seed));
+        if (pacing >= 0) {
+            createActiveGame(game, 60, pacing);
+        } else {
+            createGame(game, 30);
+        }
+    }
+
+    public TetrisGame() {
+        this(new SplittableRandom().nextLong());
+    }
 
-    public static void main(String[] args) {
-        createGame(new TetrisGame(), 30);
+    public TetrisGame(long seed) {
+        seedSource = new SplittableRandom(seed);
     }
 
     @Override
     public void init() {
         setWindowSize(350, 420);
-        board = new Board();
-        scoreManager = new ScoreManager();
-        gameState = new GameState();
+        setTickRate(TetrisSimulation.TICKS_PER_SECOND);
+        simulation = new TetrisSimulation((replay != null) ? replay.getSeed() : seedSource.nextLong());
+        controller = (replay != null) ? replay : bot;
+        startRecording();
+        gameState = simulation.getGameState();
         inputHandler = new InputHandler(this);
-        currentPiece = new Piece(board);
-        renderer = new Renderer(this, board, currentPiece, scoreManager, gameState, tileColors, this);
-        restartGame();
-    }
-
-    public void resetFallTimer() {
-        this.fallTimer = 0;
+        frames = new TripleBuffer<>(new FrameSnapshot(simulation), new FrameSnapshot(simulation),
+                new FrameSnapshot(simulation));
+        renderer = new Renderer(this, frames, tileColors);
     }
 
     public void restartGame() {
-        gameState.reset();
-        scoreManager.reset();
-        board.clearBoard();
-        inputHandler.resetDAS();
-        fallTimer = 0;
-        lockTimer = 0;
-        heldPieceType = null;
-        canHold = true;
-        spawnNewPiece();
-        renderer.setPiece(currentPiece);
-        updateFallInterval();
-    }
-
-    private void spawnNewPiece() {
-        currentPiece.spawnNewPiece();
-        renderer.setPiece(currentPiece);
-        if (currentPiece.checkSpawnCollision()) {
-            gameState.setGameOver(true);
-        }
-        fallTimer = 0;
-        lockTimer = 0;
-        canHold = true;
-    }
-
-    private void updateFallInterval() {
-        // From Tetris Guidelines - frames per gridcell converted to seconds
-        // Original values are in frames (at 60fps), so divide by 60 to get seconds
-        int level = scoreManager.getLevel();
-        switch (level) {
-            case 1:  fallInterval = 48.0/60.0; break;  // 0.800s
-            case 2:  fallInterval = 43.0/60.0; break;  // 0.717s
-            case 3:  fallInterval = 38.0/60.0; break;  // 0.633s
-            case 4:  fallInterval = 33.0/60.0; break;  // 0.550s
-            case 5:  fallInterval = 28.0/60.0; break;  // 0.467s
-            case 6:  fallInterval = 23.0/60.0; break;  // 0.383s
-            case 7:  fallInterval = 18.0/60.0; break;  // 0.300s
-            case 8:  fallInterval = 13.0/60.0; break;  // 0.217s
-            case 9:  fallInterval = 8.0/60.0;  break;  // 0.133s
-            case 10: fallInterval = 6.0/60.0;  break;  // 0.100s
-            case 11: fallInterval = 5.0/60.0;  break;  // 0.083s
-            case 12: fallInterval = 4.0/60.0;  break;  // 0.067s
-            case 13: fallInterval = 3.0/60.0;  break;  // 0.050s
-            case 14: fallInterval = 2.0/60.0;  break;  // 0.033s
-            case 15: fallInterval = 1.0/60.0;  break;  // 0.017s
-            default: fallInterval = Math.max(1.0/60.0, 48.0/60.0 - ((level-1) * 5.0/60.0));
-        }
+        simulation.restart(seedSource.nextLong());
+        controller = bot; // A finished replay hands over to the keyboard or the bot
+        startRecording();
+        inputHandler.reset();
     }
 
+    // Called once per fixed logic tick; dt is always 1 / TICKS_PER_SECOND
     @Override
     public void update(double dt) {
-        double maxDt = 0.1;
-        if(dt > maxDt) dt = maxDt;
-
         gameState.updateCountdown();
-        inputHandler.update(dt);
 
         if (gameState.isGameOver() || gameState.isPaused() || gameState.isShowCountdown() || gameState.isShowHelp()) {
             return;
         }
 
-        double currentFallSpeed = inputHandler.isSoftDropping() ? (fallInterval / 20.0) : fallInterval;
-        fallTimer += dt;
+        int inputs = (controller != null) ? controller.nextInputs(simulation) : inputHandler.pollInputs();
+        if (recorder != null) recorder.record(inputs, simulation);
+        simulation.step(inputs);
 
-        while (fallTimer >= currentFallSpeed) {
-            fallTimer -= currentFallSpeed;
-            if (currentPiece.isLanded()) {
-                lockTimer += currentFallSpeed;
-                if (lockTimer >= lockDelay) {
-                    lockPiece();
-                }
-            } else {
-                currentPiece.moveDown();
-                lockTimer = 0;
-            }
+        if (simulation.isGameOver() && recorder != null && !recorder.isFinished()) {
+            recorder.finish(simulation.getScoreManager());
+            long seed = simulation.getPieceGenerator().getSeed();
+            recorder.saveAsync(replayDir.resolve("replay-" + Long.toHexString(seed) + ".trp"));
         }
     }
 
-    private void lockPiece() {
-        currentPiece.lockPiece();
-        board.checkAndClearCompletedRows(scoreManager, scoreManager.getLevel());
-        updateFallInterval();
-        spawnNewPiece();
-        lockTimer = 0;
-        fallTimer = 0;
-    }
-
-    public void hardDrop() {
-        if (currentPiece == null || gameState.isGameOver() || gameState.isPaused()) return;
-        while (!currentPiece.isLanded()) {
-            currentPiece.moveDown();
-        }
-        lockPiece(); // Use the unified lockPiece logic
-    }
-
-    public void rotatePiece(boolean clockwise) {
-        if (currentPiece == null || gameState.isGameOver() || gameState.isPaused()) return;
-        if (clockwise) {
-            currentPiece.rotateClockwise();
+    private void startRecording() {
+        if (replayDir != null && (replay == null || controller != replay)) {
+            recorder = new ReplayRecorder(simulation.getPieceGenerator().getSeed());
         } else {
-            currentPiece.rotateCounterClockwise();
+            recorder = null;
         }
     }
 
-    public void holdPiece() {
-        if (!canHold || currentPiece == null || gameState.isGameOver() || gameState.isPaused()) {
-            return;
-        }
-
-        int currentType = currentPiece.getPieceType();
-
-        if (heldPieceType == null) {
-            // First hold - just store current piece and spawn new one
-            heldPieceType = currentType;
-            spawnNewPiece();
-        } else {
-            // Swap with held piece
-            int tempType = heldPieceType;
-            heldPieceType = currentType;
-            currentPiece.spawnSpecificPiece(tempType);
-        }
-
-        canHold = false;  // Can't hold again until next piece
-        renderer.setPiece(currentPiece);
-        fallTimer = 0;    // Reset fall timer for new/swapped piece
-        lockTimer = 0;    // Reset lock timer
+    // Runs on the logic thread: copies the game into a snapshot for the renderer.
+    // The board is only copied again when its version shows it changed.
+    @Override
+    public void publishFrame() {
+        frames.back().capture(simulation, simulation.getBoard().getVersion(), getTickTime());
+        frames.publish();
     }
 
     @Override
     public void paintComponent() {
+        // The active render thread draws every frame, so it takes the newest snapshot
+        // here; Swing repaints use the one repaintChanged() took
+        if (isActiveRendering()) renderer.nextFrame();
         renderer.render();
     }
 
+    // Repaints only the parts of the window that changed this frame
+    @Override
+    public void requestRepaint() {
+        renderer.repaintChanged();
+    }
+
     @Override
     public void keyPressed(KeyEvent e) {
         inputHandler.keyPressed(e);
@@ -192,12 +165,15 @@ public class TetrisGame extends GameEngine {
     }
 
     // Getters for other classes to access necessary game components
-    public Board getBoard() { return board; }
-    public Piece getCurrentPiece() { return currentPiece; }
-    public ScoreManager getScoreManager() { return scoreManager; }
+    public TetrisSimulation getSimulation() { return simulation; }
+    public Board getBoard() { return simulation.getBoard(); }
+    public Piece getCurrentPiece() { return simulation.getCurrentPiece(); }
+    public PieceGenerator getPieceGenerator() { return simulation.getPieceGenerator(); }
+    public ScoreManager getScoreManager() { return simulation.getScoreManager(); }
     public GameState getGameState() { return gameState; }
     public Renderer getRenderer() { return renderer; }
+    public void setBot(Controller bot) { this.bot = bot; } // Plays every game from the next init() or restart
     public Integer getHeldPieceType() {
-        return heldPieceType;
+        return simulation.getHeldPieceType();
     }
 }
@@ -0,0 +1,314 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Headless game rules: board, falling piece, scoring, hold, gravity, lock delay and
+// auto-shift. Nothing here touches AWT or Swing, so games can be stepped on servers
+// without a display; TetrisGame is just a window and keyboard on top of this class.
+public class TetrisSimulation {
+    // Input bits passed to step(). LEFT, RIGHT and SOFT_DROP describe keys being held;
+    // the others are one-shot actions applied on the step they are set.
+    public static final int INPUT_LEFT = 1;
+    public static final int INPUT_RIGHT = 1 << 1;
+    public static final int INPUT_SOFT_DROP = 1 << 2;
+    public static final int INPUT_HARD_DROP = 1 << 3;
+    public static final int INPUT_ROTATE_CW = 1 << 4;
+    public static final int INPUT_ROTATE_CCW = 1 << 5;
+    public static final int INPUT_HOLD = 1 << 6;
+
+    // The simulation advances in fixed logic ticks. All timers below count ticks, so
+    // the same inputs always give bit-identical games regardless of frame timing.
+    public static final int TICKS_PER_SECOND = 60;
+    private static final int SOFT_DROP_FACTOR = 20; // Soft drop falls 20x faster than gravity
+    private static final int LOCK_DELAY_TICKS = 30; // 0.5s
+    private static final int DAS_TICKS = 9;         // 0.15s before auto-shift starts
+    private static final int ARR_TICKS = 3;         // 0.05s between auto-shift moves
+
+    private Board board;
+    private Piece currentPiece;
+    private PieceGenerator pieceGenerator;
+    private ScoreManager scoreManager;
+    private GameState gameState;
+
+    private int fallInterval = 48;  // Ticks per row at the current level
+    private int fallTimer = 0;      // Counts up by 1 per tick, or SOFT_DROP_FACTOR while soft dropping
+    private int lockTimer = 0;      // Ticks spent resting on the stack
+    private Integer heldPieceType = null;
+    private boolean canHold = true;
+    private int piecesPlaced;
+    private long tick;              // Ticks simulated since the game started
+
+    // DAS/ARR (Delayed Auto Shift/Auto Repeat, horizontal movement)
+    private int leftHeldTicks = 0, rightHeldTicks = 0;
+    private int heldInputs; // Held input bits seen on the previous step
+
+    public TetrisSimulation(long seed) {
+        this(new PieceGenerator(seed));
+    }
+
+    public TetrisSimulation(PieceGenerator pieceGenerator) {
+        this.pieceGenerator = pieceGenerator;
+        board = new Board();
+        scoreManager = new ScoreManager();
+        gameState = new GameState();
+        currentPiece = new Piece(board, pieceGenerator);
+        reset();
+    }
+
+    // Starts a new game with a fresh piece sequence
+    public void restart(long seed) {
+        pieceGenerator.reset(seed);
+        reset();
+    }
+
+    private void reset() {
+        gameState.reset();
+        scoreManager.reset();
+        board.clearBoard();
+        fallTimer = 0;
+        lockTimer = 0;
+        heldPieceType = null;
+        canHold = true;
+        piecesPlaced = 0;
+        tick = 0;
+        leftHeldTicks = 0;
+        rightHeldTicks = 0;
+        heldInputs = 0;
+        spawnNewPiece();
+        updateFallInterval();
+    }
+
+    // Advances the game by one logic tick with the given input bits
+    public void step(int inputs) {
+        if (gameState.isGameOver()) return;
+
+        applyInputs(inputs);
+        if (gameState.isGameOver()) return;
+        tick++;
+
+        fallTimer += ((heldInputs & INPUT_SOFT_DROP) != 0) ? SOFT_DROP_FACTOR : 1;
+        while (fallTimer >= fallInterval) {
+            fallTimer -= fallInterval;
+            if (!currentPiece.isLanded()) {
+                currentPiece.moveDown();
+                lockTimer = 0;
+            }
+        }
+
+        if (currentPiece.isLanded()) {
+            lockTimer++;
+            if (lockTimer >= LOCK_DELAY_TICKS) {
+                lockPiece();
+            }
+        }
+    }
+
+    private void applyInputs(int inputs) {
+        int pressed = inputs & ~heldInputs;
+        heldInputs = inputs & (INPUT_LEFT | INPUT_RIGHT | INPUT_SOFT_DROP);
+
+        // Presses act immediately, then holding starts the auto-shift clock
+        if ((pressed & INPUT_LEFT) != 0) {
+            leftHeldTicks = 0;
+            moveLeft();
+        }
+        if ((pressed & INPUT_RIGHT) != 0) {
+            rightHeldTicks = 0;
+            moveRight();
+        }
+        if ((pressed & INPUT_SOFT_DROP) != 0) {
+            softDrop();
+        }
+        if ((inputs & INPUT_ROTATE_CW) != 0) {
+            rotatePiece(true);
+        }
+        if ((inputs & INPUT_ROTATE_CCW) != 0) {
+            rotatePiece(false);
+        }
+        if ((inputs & INPUT_HOLD) != 0) {
+            holdPiece();
+        }
+        if ((inputs & INPUT_HARD_DROP) != 0) {
+            hardDrop();
+        }
+
+        // DAS/ARR for L/R movement: after DAS_TICKS, repeat every ARR_TICKS
+        if ((heldInputs & INPUT_LEFT) != 0) {
+            if (++leftHeldTicks >= DAS_TICKS + ARR_TICKS) {
+                leftHeldTicks = DAS_TICKS;
+                currentPiece.moveLeft();
+            }
+        } else {
+            leftHeldTicks = 0;
+        }
+        if ((heldInputs & INPUT_RIGHT) != 0) {
+            if (++rightHeldTicks >= DAS_TICKS + ARR_TICKS) {
+                rightHeldTicks = DAS_TICKS;
+                currentPiece.moveRight();
+            }
+        } else {
+            rightHeldTicks = 0;
+        }
+    }
+
+    private void spawnNewPiece() {
+        currentPiece.spawnNewPiece();
+        if (currentPiece.checkSpawnCollision()) {
+            gameState.setGameOver(true);
+        }
+        fallTimer = 0;
+        lockTimer = 0;
+        canHold = true;
+    }
+
+    private void updateFallInterval() {
+        // From Tetris Guidelines - frames per gridcell, one frame per logic tick
+        int level = scoreManager.getLevel();
+        switch (level) {
+            case 1:  fallInterval = 48; break;  // 0.800s
+            case 2:  fallInterval = 43; break;  // 0.717s
+            case 3:  fallInterval = 38; break;  // 0.633s
+            case 4:  fallInterval = 33; break;  // 0.550s
+            case 5:  fallInterval = 28; break;  // 0.467s
+            case 6:  fallInterval = 23; break;  // 0.383s
+            case 7:  fallInterval = 18; break;  // 0.300s
+            case 8:  fallInterval = 13; break;  // 0.217s
+            case 9:  fallInterval = 8;  break;  // 0.133s
+            case 10: fallInterval = 6;  break;  // 0.100s
+            case 11: fallInterval = 5;  break;  // 0.083s
+            case 12: fallInterval = 4;  break;  // 0.067s
+            case 13: fallInterval = 3;  break;  // 0.050s
+            case 14: fallInterval = 2;  break;  // 0.033s
+            case 15: fallInterval = 1;  break;  // 0.017s
+            default: fallInterval = Math.max(1, 48 - ((level-1) * 5));
+        }
+    }
+
+    private void lockPiece() {
+        int topRow = currentPiece.getTopRow();
+        int bottomRow = currentPiece.getBottomRow();
+        currentPiece.lockPiece();
+        piecesPlaced++;
+        board.checkAndClearCompletedRows(scoreManager, scoreManager.getLevel(), topRow, bottomRow);
+        updateFallInterval();
+        spawnNewPiece();
+        lockTimer = 0;
+        fallTimer = 0;
+    }
+
+    public void moveLeft() {
+        if (gameState.isGameOver()) return;
+        currentPiece.moveLeft();
+    }
+
+    public void moveRight() {
+        if (gameState.isGameOver()) return;
+        currentPiece.moveRight();
+    }
+
+    // Moves the piece one row down straight away and restarts the gravity clock
+    public void softDrop() {
+        if (gameState.isGameOver()) return;
+        if (!currentPiece.isLanded()) {
+            currentPiece.moveDown();
+            fallTimer = 0;
+        }
+    }
+
+    public void hardDrop() {
+        if (gameState.isGameOver()) return;
+        currentPiece.dropToBottom();
+        lockPiece(); // Use the unified lockPiece logic
+    }
+
+    public void rotatePiece(boolean clockwise) {
+        if (gameState.isGameOver()) return;
+        if (clockwise) {
+            currentPiece.rotateClockwise();
+        } else {
+            currentPiece.rotateCounterClockwise();
+        }
+    }
+
+    public void holdPiece() {
+        if (!canHold || gameState.isGameOver()) {
+            return;
+        }
+
+        int currentType = currentPiece.getPieceType();
+
+        if (heldPieceType == null) {
+            // First hold - just store current piece and spawn new one
+            heldPieceType = currentType;
+            spawnNewPiece();
+        } else {
+            // Swap with held piece
+            int tempType = heldPieceType;
+            heldPieceType = currentType;
+            currentPiece.spawnSpecificPiece(tempType);
+        }
+
+        canHold = false;  // Can't hold again until next piece
+        fallTimer = 0;    // Reset fall timer for new/swapped piece
+        lockTimer = 0;    // Reset lock timer
+    }
+
+    // Writes everything needed to resume this game exactly where it is
+    public void saveSnapshot(DataOutput out) throws IOException {
+        board.saveState(out);
+        pieceGenerator.saveState(out);
+        scoreManager.saveState(out);
+        out.writeInt(currentPiece.getState());
+        out.writeByte((heldPieceType != null) ? heldPieceType : -1);
+        out.writeBoolean(canHold);
+        out.writeBoolean(gameState.isGameOver());
+        out.writeInt(fallTimer);
+        out.writeInt(lockTimer);
+        out.writeInt(piecesPlaced);
+        out.writeLong(tick);
+        out.writeByte(leftHeldTicks);
+        out.writeByte(rightHeldTicks);
+        out.writeByte(heldInputs);
+    }
+
+    // Restores a game written by saveSnapshot
+    public void loadSnapshot(DataInput in) throws IOException {
+        board.loadState(in);
+        pieceGenerator.loadState(in);
+        scoreManager.loadState(in);
+        currentPiece.setState(in.readInt());
+        int held = in.readByte();
+        heldPieceType = (held >= 0) ? held : null;
+        canHold = in.readBoolean();
+        gameState.reset();
+        gameState.setGameOver(in.readBoolean());
+        fallTimer = in.readInt();
+        lockTimer = in.readInt();
+        piecesPlaced = in.readInt();
+        tick = in.readLong();
+        leftHeldTicks = in.readUnsignedByte();
+        rightHeldTicks = in.readUnsignedByte();
+        heldInputs = in.readUnsignedByte();
+        updateFallInterval();
+    }
+
+    // Getters
+    public Board getBoard() { return board; }
+    public Piece getCurrentPiece() { return currentPiece; }
+    public PieceGenerator getPieceGenerator() { return pieceGenerator; }
+    public ScoreManager getScoreManager() { return scoreManager; }
+    public GameState getGameState() { return gameState; }
+    public Integer getHeldPieceType() { return heldPieceType; }
+    public boolean canHold() { return canHold; }
+    public boolean isGameOver() { return gameState.isGameOver(); }
+    public int getPiecesPlaced() { return piecesPlaced; }
+    public long getTick() { return tick; }
+
+    // How far gravity has taken the piece towards the next row, from 0 to 1
+    public double getFallProgress() { return (double) fallTimer / fallInterval; }
+
+    // Rows gravity moves the piece per tick, faster while soft drop is held
+    public double getFallSpeed() {
+        return (double) (((heldInputs & INPUT_SOFT_DROP) != 0) ? SOFT_DROP_FACTOR : 1) / fallInterval;
+    }
+}
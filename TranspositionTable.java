@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+// Fixed-size hash table from a Zobrist key to a score, so a search evaluates a
+// position once however many move orders reach it. Entries live in 4-way buckets;
+// when a bucket is full the entry last used longest ago is replaced, which keeps
+// the table at its configured size and favours the positions of the current search.
+// Not thread-safe: give each searching thread its own table.
+public class TranspositionTable {
+    private static final int WAYS = 4;
+
+    private final long[] keys;
+    private final double[] values;
+    private final int[] stamps;   // Search stamp of the last probe or store, 0 when empty
+    private final int mask;       // Bucket index mask
+    private int stamp = 1;
+
+    private long probes, hits, stores, evictions;
+
+    // Table holding about the given number of entries, rounded up to a power of two
+    public TranspositionTable(int entries) {
+        int buckets = Integer.highestOneBit(Math.max(1, (entries + WAYS - 1) / WAYS - 1)) << 1;
+        keys = new long[buckets * WAYS];
+        values = new double[buckets * WAYS];
+        stamps = new int[buckets * WAYS];
+        mask = buckets - 1;
+    }
+
+    // Starts a new search; entries from earlier ones stay but are evicted first
+    public int nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    public int getStamp() {
+        return stamp;
+    }
+
+    // Looks up a key; returns the slot holding it, or -1 when it is not stored
+    public int probe(long key) {
+        probes++;
+        int base = bucket(key);
+        for (int i = base; i < base + WAYS; i++) {
+            if (stamps[i] != 0 && keys[i] == key) {
+                hits++;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public double value(int slot) {
+        return values[slot];
+    }
+
+    // Stamp of the search that last touched a slot
+    public int stampOf(int slot) {
+        return stamps[slot];
+    }
+
+    // Marks a slot as used by the current search
+    public void touch(int slot) {
+        stamps[slot] = stamp;
+    }
+
+    public void store(long key, double value) {
+        stores++;
+        int base = bucket(key);
+        int victim = base;
+        for (int i = base; i < base + WAYS; i++) {
+            if (stamps[i] == 0 || keys[i] == key) {
+                victim = i;
+                break;
+            }
+            if (stamps[i] < stamps[victim]) victim = i;
+        }
+        if (stamps[victim] != 0 && keys[victim] != key) evictions++;
+        keys[victim] = key;
+        values[victim] = value;
+        stamps[victim] = stamp;
+    }
+
+    private int bucket(long key) {
+        long mixed = key ^ (key >>> 32);
+        return ((int) mixed & mask) * WAYS;
+    }
+
+    public void clear() {
+        Arrays.fill(stamps, 0);
+        probes = hits = stores = evictions = 0;
+    }
+
+    public int capacity() { return keys.length; }
+    public long getProbes() { return probes; }
+    public long getHits() { return hits; }
+    public long getStores() { return stores; }
+    public long getEvictions() { return evictions; }
+    public double getHitRate() { return (probes == 0) ? 0 : (double) hits / probes; }
+
+    // Bytes used by the table arrays
+    public long memoryBytes() {
+        return (long) keys.length * (Long.BYTES + Double.BYTES + Integer.BYTES);
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands the newest value from one writer thread to one reader thread without locks.
+// There are three slots: the writer fills its back slot and swaps it with the middle
+// one, and the reader swaps its front slot with the middle one when a newer value is
+// waiting there. Neither side ever waits, and a slot is only touched by the side that
+// owns it, so a published value cannot change while the reader holds it. Values
+// published faster than the reader takes them are skipped.
+public class TripleBuffer<T> {
+    private static final int FRESH = 4; // Set on the middle index when it holds an unread value
+
+    private final Object[] slots;
+    private final AtomicInteger middle = new AtomicInteger(1); // Middle slot index, plus FRESH
+    private int back = 0;  // Owned by the writer
+    private int front = 2; // Owned by the reader
+
+    public TripleBuffer(T first, T second, T third) {
+        slots = new Object[] { first, second, third };
+    }
+
+    // Writer side: the slot to fill before the next publish()
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) slots[back];
+    }
+
+    // Writer side: hands the back slot to the reader and takes another to fill
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & 3;
+    }
+
+    // Reader side: moves to the newest published value. Returns false, keeping the
+    // current one, when nothing has been published since the last call.
+    public boolean acquire() {
+        if ((middle.get() & FRESH) == 0) return false;
+        front = middle.getAndSet(front) & 3;
+        return true;
+    }
+
+    // Reader side: the value taken by the last acquire()
+    @SuppressWarnings("unchecked")
+    public T front() {
+        return (T) slots[front];
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.SplittableRandom;
+
+// Random keys for Zobrist hashing. A position's hash is the XOR of the keys of
+// everything in it, so placing or removing a block is a single XOR and two boards
+// with the same cells always hash the same, however they were reached.
+// The keys come from a fixed seed, so hashes are stable between runs.
+public final class Zobrist {
+    private static final int MAX_WIDTH = 16;
+    private static final int MAX_HEIGHT = 64;
+    private static final int MAX_QUEUE = 64;
+
+    private static final long[] CELLS = new long[MAX_WIDTH * MAX_HEIGHT];
+    private static final long[] HOLD = new long[8];         // [held type + 1]
+    private static final long[] QUEUE = new long[MAX_QUEUE]; // Position in the piece queue
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_2B0A_4D5L);
+        fill(random, CELLS);
+        fill(random, HOLD);
+        fill(random, QUEUE);
+    }
+
+    private Zobrist() {}
+
+    private static void fill(SplittableRandom random, long[] keys) {
+        for (int i = 0; i < keys.length; i++) keys[i] = random.nextLong();
+    }
+
+    public static long cell(int x, int y) {
+        return CELLS[y * MAX_WIDTH + x];
+    }
+
+    // XOR of the cell keys of every set bit in a row mask (column x in bit x)
+    public static long row(int y, int bits) {
+        long hash = 0;
+        int base = y * MAX_WIDTH;
+        while (bits != 0) {
+            hash ^= CELLS[base + Integer.numberOfTrailingZeros(bits)];
+            bits &= bits - 1;
+        }
+        return hash;
+    }
+
+    // Key of the hold slot; held is -1 when it is empty
+    public static long hold(int held) {
+        return HOLD[held + 1];
+    }
+
+    // Key of how far into the piece queue a search has got. The queue is fixed
+    // during a search, so this also stands for which piece comes next.
+    public static long queue(int index) {
+        return QUEUE[index & (MAX_QUEUE - 1)];
+    }
+}